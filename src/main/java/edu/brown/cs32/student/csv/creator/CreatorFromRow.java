@@ -3,14 +3,23 @@ package edu.brown.cs32.student.csv.creator;
 import edu.brown.cs32.student.csv.exception.FactoryFailureException;
 import java.util.List;
 
-/** An inferface for user-developed creator to create data structure from a row */
-public interface CreatorFromRow<T> {
+/**
+ * An inferface for user-developed creator to create data structure from a row. It is adapted to
+ * `CreatorFromView`, which the parsers take, by handing it the row view as a `List`.
+ */
+public interface CreatorFromRow<T> extends CreatorFromView<T> {
   /**
    * Create a T object given the row data
    *
-   * @param row the parsed row CSV data
+   * @param row the parsed row CSV data; the parser reuses this view for every row, so copy it if it
+   *     must outlive the call
    * @return a T object
    * @throws FactoryFailureException for errors when creator handles the row data
    */
   T create(List<String> row) throws FactoryFailureException;
+
+  @Override
+  default T create(RowView row) throws FactoryFailureException {
+    return create(row.asList());
+  }
 }
@@ -0,0 +1,18 @@
+package edu.brown.cs32.student.csv.creator;
+
+import edu.brown.cs32.student.csv.exception.FactoryFailureException;
+
+/**
+ * An interface for user-developed creator that reads each row straight from the parser's buffer, so
+ * no `List` or `String` has to be made for cells it parses into primitives
+ */
+public interface CreatorFromView<T> {
+  /**
+   * Create a T object given the row data
+   *
+   * @param row the parser's reusable view of the row; copy anything that must outlive the call
+   * @return a T object
+   * @throws FactoryFailureException for errors when creator handles the row data
+   */
+  T create(RowView row) throws FactoryFailureException;
+}
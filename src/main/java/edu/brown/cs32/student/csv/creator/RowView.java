@@ -0,0 +1,79 @@
+package edu.brown.cs32.student.csv.creator;
+
+import java.util.List;
+
+/**
+ * A read-only view of the row being parsed, backed by the parser's own buffer. The parser reuses
+ * the view for every row, and nothing read from it (including `cell` and `chars`) stays valid after
+ * the creator returns, so copy what must outlive the call. Numeric getters parse straight from the
+ * buffer without making a `String`.
+ */
+public interface RowView {
+  /**
+   * @return the number of cells in the row
+   */
+  int size();
+
+  /**
+   * Cell getter, without copying
+   *
+   * @param i the cell index
+   * @return the cell's characters, valid until the creator returns
+   */
+  CharSequence cell(int i);
+
+  /**
+   * Cell getter
+   *
+   * @param i the cell index
+   * @return the cell as a new String
+   */
+  String getString(int i);
+
+  /**
+   * Parse a cell as an int
+   *
+   * @param i the cell index
+   * @return the cell's value
+   * @throws NumberFormatException if the cell is not an int
+   */
+  int getInt(int i);
+
+  /**
+   * Parse a cell as a long
+   *
+   * @param i the cell index
+   * @return the cell's value
+   * @throws NumberFormatException if the cell is not a long
+   */
+  long getLong(int i);
+
+  /**
+   * Parse a cell as a double, accepting the same text as `Double.parseDouble`
+   *
+   * @param i the cell index
+   * @return the cell's value
+   * @throws NumberFormatException if the cell is not a number
+   */
+  double getDouble(int i);
+
+  /**
+   * @return the buffer holding the row's cells, valid until the creator returns
+   */
+  char[] chars();
+
+  /**
+   * @return the offset of cell i in `chars()`
+   */
+  int start(int i);
+
+  /**
+   * @return the end offset (exclusive) of cell i in `chars()`
+   */
+  int end(int i);
+
+  /**
+   * @return the row as a lazily materializing `List` view, reused like the row view itself
+   */
+  List<String> asList();
+}
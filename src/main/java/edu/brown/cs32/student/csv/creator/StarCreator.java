@@ -25,4 +25,19 @@ public class StarCreator implements CreatorFromRow<Star> {
             Double.parseDouble(row.get(4)));
     return s;
   }
+
+  /**
+   * Create a Star object straight from the parser's buffer, without a `List` for the row
+   *
+   * @param row the parser's view of the row
+   * @return a Star object
+   * @throws FactoryFailureException for errors when creator handles the row data
+   */
+  @Override
+  public Star create(RowView row) throws FactoryFailureException {
+    if (row.size() != 5)
+      throw new FactoryFailureException("Cannot construct Star object", row.asList());
+    return new Star(
+        row.getInt(0), row.getString(1), row.getDouble(2), row.getDouble(3), row.getDouble(4));
+  }
 }
@@ -1,7 +1,42 @@
 package edu.brown.cs32.student.csv.exception;
 
+/** Exception for CSV data that does not follow the expected format */
 public class WrongFormatCSVException extends Exception {
+  /** 1-based line the error was found on, or -1 if unknown */
+  private final int line;
+  /** Description of the error, without the line prefix */
+  private final String detail;
+
   public WrongFormatCSVException(String errorMessage) {
     super(errorMessage);
+    this.line = -1;
+    this.detail = errorMessage;
+  }
+
+  /** Constructor for an error found on a given line */
+  public WrongFormatCSVException(int line, String detail) {
+    super("Wrong CSV data format! Line " + line + " " + detail);
+    this.line = line;
+    this.detail = detail;
+  }
+
+  /**
+   * Line getter
+   *
+   * @return the 1-based line of the error, or -1 if unknown
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Re-anchor an error found in a part of the file to the whole file
+   *
+   * @param lines the number of lines before the part
+   * @return the same error with its line moved down by `lines`
+   */
+  public WrongFormatCSVException shift(int lines) {
+    if (line < 0) return this;
+    return new WrongFormatCSVException(line + lines, detail);
   }
 }
@@ -1,9 +1,11 @@
 package edu.brown.cs32.student.csv.parser;
 
-import edu.brown.cs32.student.csv.creator.CreatorFromRow;
+import edu.brown.cs32.student.csv.creator.CreatorFromView;
 import edu.brown.cs32.student.csv.exception.FactoryFailureException;
 import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
-import java.io.BufferedReader;
+import edu.brown.cs32.student.csv.table.ColumnType;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableBuilder;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
@@ -13,17 +15,22 @@ import java.util.List;
 public class CSVParser<T> {
   private boolean hasHead;
   private List<String> header;
-  private BufferedReader br;
-  private CreatorFromRow<T> creator;
-  /** Constructor */
-  public CSVParser(boolean hasHead, Reader r, CreatorFromRow<T> c) {
+  private CSVTokenizer tokenizer;
+  private CreatorFromView<T> creator;
+  /** Constructor, taking a `CreatorFromView` or a `CreatorFromRow` */
+  public CSVParser(boolean hasHead, Reader r, CreatorFromView<T> c) {
     this.hasHead = hasHead;
     if (hasHead) header = new ArrayList<>();
     else header = null;
-    br = new BufferedReader(r);
+    tokenizer = new CSVTokenizer(r);
     creator = c;
   }
 
+  /** Constructor for a parser that only fills a `Table` through `parseTable` */
+  public CSVParser(boolean hasHead, Reader r) {
+    this(hasHead, r, null);
+  }
+
   /**
    * Header Getter
    *
@@ -42,33 +49,29 @@ public class CSVParser<T> {
    * @return a List of each parsed row
    */
   public List<T> parse(List<T> ret, List<String> header) throws Exception {
+    ret.clear();
+    header.clear();
+    parse(ret::add);
+    if (hasHead) header.addAll(this.header);
+    return ret;
+  }
+
+  /**
+   * Stream the CSV data, handing every parsed row to the consumer as soon as it is created, so
+   * memory stays flat no matter the file size. Column counts are checked the same way as `parse`.
+   *
+   * @param consumer the callback receiving each parsed row
+   * @return the number of rows handed to the consumer
+   */
+  public int parse(RowConsumer<T> consumer) throws Exception {
     try {
-      ret.clear();
-      header.clear();
-      String line;
-      int count = 0;
-      int rowItemNum = -1;
-      while ((line = br.readLine()) != null) {
-        count++;
-        List<String> tmp = List.of(line.split(","));
-        if (count == 1) {
-          if (hasHead) {
-            header.addAll(tmp);
-          }
-          rowItemNum = tmp.size();
-          continue;
-        }
-        if (tmp.size() != rowItemNum) {
-          throw new WrongFormatCSVException(
-              "Wrong CSV data format! Line "
-                  + count
-                  + " has "
-                  + tmp.size()
-                  + " columns, but should be "
-                  + rowItemNum);
-        }
-        ret.add(creator.create(tmp));
+      List<String> tmp = tokenizer.asList();
+      if (!tokenizer.next()) return 0;
+      if (hasHead) {
+        header.clear();
+        header.addAll(tmp);
       }
+      return parseRows(tokenizer, tmp.size(), creator, consumer);
     } catch (IOException e) {
       throw e;
     } catch (FactoryFailureException e) {
@@ -76,6 +79,98 @@ public class CSVParser<T> {
       System.err.println(e.getRow().toString());
       throw e;
     }
-    return ret;
+  }
+
+  /**
+   * Create and consume every remaining record of a tokenizer, checking each has `rowItemNum`
+   * columns. The creator reads each record through the tokenizer's row view. Errors report the
+   * tokenizer's own record numbers.
+   *
+   * @return the number of rows handed to the consumer
+   */
+  static <T> int parseRows(
+      CSVTokenizer tokenizer, int rowItemNum, CreatorFromView<T> creator, RowConsumer<T> consumer)
+      throws Exception {
+    int rows = 0;
+    while (tokenizer.next()) {
+      if (tokenizer.size() != rowItemNum) {
+        throw new WrongFormatCSVException(
+            tokenizer.record(),
+            "has " + tokenizer.size() + " columns, but should be " + rowItemNum);
+      }
+      consumer.accept(creator.create(tokenizer));
+      rows++;
+    }
+    return rows;
+  }
+
+  /**
+   * Parse the CSV data into a column-oriented table, straight from the tokenizer's buffers. The
+   * first row is handled the same way as in `parse`.
+   *
+   * @return the table, with every column's type inferred from its cells
+   */
+  public Table parseTable() throws Exception {
+    return parseTable(null);
+  }
+
+  /**
+   * Parse the CSV data into a column-oriented table with declared column types
+   *
+   * @param types the type of each column, null entries (or a null array) to infer them
+   * @return the table
+   * @throws WrongFormatCSVException if the number of types is wrong, or a cell does not fit its
+   *     column's declared type
+   */
+  public Table parseTable(ColumnType[] types) throws Exception {
+    if (!tokenizer.next()) return new TableBuilder(List.of(), 0).build();
+    if (hasHead) {
+      header.clear();
+      header.addAll(tokenizer.asList());
+    }
+    TableBuilder builder = newBuilder(hasHead ? header : List.of(), tokenizer.size(), types);
+    fillTable(tokenizer, builder);
+    return builder.build();
+  }
+
+  /**
+   * Create a table builder for the columns found in the first record
+   *
+   * @throws WrongFormatCSVException if the number of types does not match the first record
+   */
+  static TableBuilder newBuilder(List<String> header, int columns, ColumnType[] types)
+      throws WrongFormatCSVException {
+    try {
+      return new TableBuilder(header, columns, types);
+    } catch (IllegalArgumentException e) {
+      throw new WrongFormatCSVException(1, e.getMessage());
+    }
+  }
+
+  /**
+   * Add every remaining record of a tokenizer to a table builder, checking each has the builder's
+   * number of columns and fits its declared types. Errors report the tokenizer's own record
+   * numbers.
+   */
+  static void fillTable(CSVTokenizer tokenizer, TableBuilder builder)
+      throws IOException, WrongFormatCSVException {
+    int rowItemNum = builder.columnCount();
+    while (tokenizer.next()) {
+      if (tokenizer.size() != rowItemNum) {
+        throw new WrongFormatCSVException(
+            tokenizer.record(),
+            "has " + tokenizer.size() + " columns, but should be " + rowItemNum);
+      }
+      char[] chars = tokenizer.chars();
+      for (int i = 0; i < rowItemNum; i++) {
+        try {
+          builder.add(i, chars, tokenizer.start(i), tokenizer.end(i));
+        } catch (IllegalArgumentException e) {
+          throw new WrongFormatCSVException(
+              tokenizer.record(), "column " + i + " has " + e.getMessage());
+        }
+      }
+      builder.endRow();
+    }
   }
 }
@@ -0,0 +1,263 @@
+package edu.brown.cs32.student.csv.parser;
+
+import edu.brown.cs32.student.csv.creator.RowView;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
+import edu.brown.cs32.student.csv.table.Decimals;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Split CSV text into records and cells in a single scan over the characters. The read buffer, the
+ * cell buffer and the cell offsets are reused for every record, so tokenizing allocates nothing per
+ * row; a `String` is only made when a cell is actually asked for. The tokenizer is itself the
+ * `RowView` of the current record that creators read from.
+ *
+ * <p>Follows RFC 4180: a cell starting with a double quote runs to the matching closing quote and
+ * may contain commas, line breaks and doubled (escaped) quotes. Records end with LF, CRLF or CR.
+ */
+class CSVTokenizer implements RowView {
+  private final Reader in;
+  private final char[] buf = new char[1 << 16];
+  private int pos;
+  private int limit;
+  private boolean eof;
+  /** the characters of the current record's cells, back to back */
+  private char[] chars = new char[256];
+  /** `chars` as a CharSequence, for parsing and viewing cells without copying */
+  private CharBuffer text = CharBuffer.wrap(chars);
+  /** end offset (exclusive) of each cell in `chars`; cell i starts at ends[i - 1] */
+  private int[] ends = new int[16];
+
+  private int size;
+  private int record;
+  private final List<String> view = new RowList();
+
+  /** Constructor */
+  CSVTokenizer(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Read the next record
+   *
+   * @return false if the input is exhausted
+   * @throws IOException for errors when reading the input
+   * @throws WrongFormatCSVException if a quoted cell is never closed
+   */
+  boolean next() throws IOException, WrongFormatCSVException {
+    if (pos == limit && !fill()) return false;
+    size = 0;
+    int len = 0;
+    boolean cellStart = true;
+    while (true) {
+      if (cellStart && buf[pos] == '"') {
+        pos++;
+        len = quoted(len);
+        if (pos == limit && !fill()) break;
+      }
+      cellStart = false;
+      // copy the run of plain characters up to the next delimiter in one go
+      char[] b = buf;
+      int p = pos;
+      int lim = limit;
+      int start = p;
+      while (p < lim) {
+        char c = b[p];
+        if (c == ',' || c == '\n' || c == '\r') break;
+        p++;
+      }
+      if (p > start) {
+        len = append(b, start, p - start, len);
+      }
+      if (p == lim) {
+        pos = p;
+        if (!fill()) break;
+        continue;
+      }
+      char c = b[p];
+      pos = p + 1;
+      if (c == ',') {
+        endCell(len);
+        if (pos == limit && !fill()) break;
+        cellStart = true;
+        continue;
+      }
+      if (c == '\r') {
+        if (pos == limit) fill();
+        if (pos < limit && buf[pos] == '\n') pos++;
+      }
+      break;
+    }
+    endCell(len);
+    record++;
+    return true;
+  }
+
+  /**
+   * Copy a quoted cell's content, the opening quote already consumed, up to and including its
+   * closing quote
+   *
+   * @param len the current length of the cell buffer
+   * @return the new length of the cell buffer
+   */
+  private int quoted(int len) throws IOException, WrongFormatCSVException {
+    while (true) {
+      if (pos == limit && !fill())
+        throw new WrongFormatCSVException(record + 1, "has an unclosed quoted field");
+      char[] b = buf;
+      int p = pos;
+      int lim = limit;
+      int start = p;
+      while (p < lim && b[p] != '"') p++;
+      if (p > start) len = append(b, start, p - start, len);
+      pos = p;
+      if (p == lim) continue;
+      pos++;
+      if (pos == limit) fill();
+      if (pos < limit && buf[pos] == '"') {
+        // an escaped quote inside the cell
+        len = append(buf, pos, 1, len);
+        pos++;
+        continue;
+      }
+      return len;
+    }
+  }
+
+  private int append(char[] src, int from, int n, int len) {
+    if (len + n > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(len + n, chars.length * 2));
+      text = CharBuffer.wrap(chars);
+    }
+    System.arraycopy(src, from, chars, len, n);
+    return len + n;
+  }
+
+  private void endCell(int len) {
+    if (size == ends.length) ends = Arrays.copyOf(ends, size * 2);
+    ends[size++] = len;
+  }
+
+  private boolean fill() throws IOException {
+    if (eof) return false;
+    int n;
+    do {
+      n = in.read(buf, 0, buf.length);
+    } while (n == 0);
+    if (n < 0) {
+      eof = true;
+      pos = limit = 0;
+      return false;
+    }
+    pos = 0;
+    limit = n;
+    return true;
+  }
+
+  /**
+   * @return the number of cells in the current record
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the 1-based number of the current record
+   */
+  int record() {
+    return record;
+  }
+
+  /**
+   * @return the shared buffer holding the current record's cells
+   */
+  @Override
+  public char[] chars() {
+    return chars;
+  }
+
+  /**
+   * @return the offset of cell i in `chars()`
+   */
+  @Override
+  public int start(int i) {
+    return i == 0 ? 0 : ends[i - 1];
+  }
+
+  /**
+   * @return the end offset (exclusive) of cell i in `chars()`
+   */
+  @Override
+  public int end(int i) {
+    return ends[i];
+  }
+
+  /**
+   * Materialize one cell
+   *
+   * @param i the cell index
+   * @return the cell as a new String
+   */
+  @Override
+  public String getString(int i) {
+    int start = start(i);
+    return new String(chars, start, ends[i] - start);
+  }
+
+  @Override
+  public CharSequence cell(int i) {
+    return text.subSequence(start(i), ends[i]);
+  }
+
+  @Override
+  public int getInt(int i) {
+    return Integer.parseInt(text, start(i), ends[i], 10);
+  }
+
+  @Override
+  public long getLong(int i) {
+    return Long.parseLong(text, start(i), ends[i], 10);
+  }
+
+  @Override
+  public double getDouble(int i) {
+    return Decimals.parseDouble(chars, start(i), ends[i]);
+  }
+
+  /**
+   * A `List` view of the current record. The view is reused and changes on every `next()`, so
+   * callers that keep the row must copy it.
+   *
+   * @return the reusable row view
+   */
+  @Override
+  public List<String> asList() {
+    return view;
+  }
+
+  /** Lazily materializing view over the current record */
+  private class RowList extends AbstractList<String> {
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+      return CSVTokenizer.this.getString(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Object[] toArray() {
+      Object[] ret = new Object[size];
+      for (int i = 0; i < size; i++) ret[i] = CSVTokenizer.this.getString(i);
+      return ret;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package edu.brown.cs32.student.csv.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A `Reader` over a memory-mapped region of a UTF-8 file. Characters are decoded straight from the
+ * mapping into the caller's buffer, so the bytes are never copied onto the heap and no
+ * `CharsetDecoder` is involved. The region is mapped in windows of at most 1 GB, which lets it read
+ * files larger than the 2 GB limit of a single mapping. Malformed bytes decode to U+FFFD.
+ */
+public class MappedCSVReader extends Reader {
+  /** reads eight bytes of the scratch buffer at once, to find non-ASCII bytes quickly */
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  /** largest window mapped at once */
+  private static final long WINDOW = 1L << 30;
+
+  private final FileChannel channel;
+  private final boolean ownsChannel;
+  private final long end;
+  private final long windowSize;
+  /** file offset of the current window's first byte */
+  private long windowStart;
+
+  private MappedByteBuffer window;
+  private final byte[] scratch = new byte[8192];
+  /** low surrogate left over when a supplementary character did not fit the caller's buffer */
+  private char pendingLow;
+
+  /**
+   * Constructor reading a whole file
+   *
+   * @param file the UTF-8 file
+   * @throws IOException if the file cannot be opened
+   */
+  public MappedCSVReader(Path file) throws IOException {
+    this(FileChannel.open(file), true);
+  }
+
+  private MappedCSVReader(FileChannel channel, boolean ownsChannel) throws IOException {
+    this(channel, 0, channel.size(), WINDOW, ownsChannel);
+  }
+
+  /**
+   * Constructor reading the region [start, end) of an open channel, which the caller keeps
+   * ownership of. `start` must be the first byte of a character.
+   */
+  public MappedCSVReader(FileChannel channel, long start, long end) throws IOException {
+    this(channel, start, end, WINDOW, false);
+  }
+
+  MappedCSVReader(FileChannel channel, long start, long end, long windowSize, boolean ownsChannel)
+      throws IOException {
+    this.channel = channel;
+    this.ownsChannel = ownsChannel;
+    this.end = end;
+    this.windowSize = windowSize;
+    map(start);
+  }
+
+  private void map(long start) throws IOException {
+    windowStart = start;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, end - start));
+  }
+
+  /**
+   * Map the next window once the current one runs out, or is too close to its end to hold a whole
+   * UTF-8 sequence
+   *
+   * @return false if the region is exhausted
+   */
+  private boolean advance() throws IOException {
+    long pos = windowStart + window.position();
+    if (pos >= end) return false;
+    map(pos);
+    return true;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) return 0;
+    int n = 0;
+    if (pendingLow != 0) {
+      cbuf[off + n++] = pendingLow;
+      pendingLow = 0;
+    }
+    while (n < len) {
+      MappedByteBuffer w = window;
+      if (!w.hasRemaining() || (w.remaining() < 4 && windowStart + w.limit() < end)) {
+        if (!advance()) break;
+        w = window;
+      }
+      int p = w.position();
+      int lim = w.limit();
+      // ASCII fast path over a small cache-resident copy of the next bytes
+      int run = Math.min(Math.min(len - n, lim - p), scratch.length);
+      w.get(p, scratch, 0, run);
+      int i = 0;
+      while (i + 8 <= run && ((long) LONGS.get(scratch, i) & 0x8080808080808080L) == 0) i += 8;
+      while (i < run && scratch[i] >= 0) i++;
+      for (int j = 0; j < i; j++) cbuf[off + n + j] = (char) scratch[j];
+      n += i;
+      p += i;
+      w.position(p);
+      if (i == run) continue;
+
+      int b0 = w.get(p) & 0xff;
+      int need;
+      int cp;
+      if (b0 >= 0xC2 && b0 <= 0xDF) {
+        need = 1;
+        cp = b0 & 0x1F;
+      } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+        need = 2;
+        cp = b0 & 0x0F;
+      } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+        need = 3;
+        cp = b0 & 0x07;
+      } else {
+        need = 0;
+        cp = 0xFFFD;
+      }
+      // the sequence runs past this window: map the next one, which starts at this character
+      if (p + need >= lim && windowStart + lim < end) continue;
+      int used = 1;
+      for (int k = 1; k <= need; k++) {
+        if (p + k >= lim || (w.get(p + k) & 0xC0) != 0x80) {
+          cp = 0xFFFD;
+          break;
+        }
+        cp = (cp << 6) | (w.get(p + k) & 0x3F);
+        used++;
+      }
+      if (cp != 0xFFFD
+          && (need == 2 && (cp < 0x800 || Character.isSurrogate((char) cp))
+              || need == 3 && (cp < 0x10000 || cp > 0x10FFFF))) {
+        cp = 0xFFFD;
+      }
+      w.position(p + used);
+      if (cp >= 0x10000) {
+        cbuf[off + n++] = Character.highSurrogate(cp);
+        if (n < len) cbuf[off + n++] = Character.lowSurrogate(cp);
+        else pendingLow = Character.lowSurrogate(cp);
+      } else {
+        cbuf[off + n++] = (char) cp;
+      }
+    }
+    return n == 0 ? -1 : n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    window = null;
+    if (ownsChannel) channel.close();
+  }
+}
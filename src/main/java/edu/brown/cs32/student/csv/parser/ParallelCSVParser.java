@@ -0,0 +1,421 @@
+package edu.brown.cs32.student.csv.parser;
+
+import edu.brown.cs32.student.csv.creator.CreatorFromView;
+import edu.brown.cs32.student.csv.exception.FactoryFailureException;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
+import edu.brown.cs32.student.csv.table.ColumnType;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableBuilder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parse a UTF-8 CSV file on all cores. The file is cut into chunks at record boundaries (never
+ * inside a quoted cell), the chunks are tokenized and created in a fork-join pool, and the rows are
+ * merged back in file order. Every chunk decodes straight from a memory mapping of the file (see
+ * `MappedCSVReader`). Results and errors are the same as `CSVParser`'s, including the line numbers
+ * of `WrongFormatCSVException`. The creator must be safe to call from several threads.
+ */
+public class ParallelCSVParser<T> {
+  /** how many chunks to cut per worker thread, so uneven chunks still balance */
+  private static final int CHUNKS_PER_THREAD = 4;
+  /** how much of the file a boundary scan reads at once */
+  private static final int SCAN_BLOCK = 1 << 16;
+
+  private final boolean hasHead;
+  private final Path file;
+  private final CreatorFromView<T> creator;
+  private final ForkJoinPool pool;
+  private List<String> header;
+
+  /** Constructor for a parser that only fills a `Table` through `parseTable` */
+  public ParallelCSVParser(boolean hasHead, Path file) {
+    this(hasHead, file, null);
+  }
+
+  /** Constructor, parsing on the common fork-join pool */
+  public ParallelCSVParser(boolean hasHead, Path file, CreatorFromView<T> c) {
+    this(hasHead, file, c, ForkJoinPool.commonPool());
+  }
+
+  /** Constructor */
+  public ParallelCSVParser(boolean hasHead, Path file, CreatorFromView<T> c, ForkJoinPool pool) {
+    this.hasHead = hasHead;
+    this.header = hasHead ? new ArrayList<>() : null;
+    this.file = file;
+    this.creator = c;
+    this.pool = pool;
+  }
+
+  /**
+   * Header Getter
+   *
+   * @return the CSV header
+   */
+  public List<String> getHeader() {
+    return new ArrayList<>(header);
+  }
+
+  /**
+   * Parse the CSV data
+   *
+   * @return a List of each parsed row, in file order
+   */
+  public List<T> parse(List<T> ret, List<String> header) throws Exception {
+    ret.clear();
+    header.clear();
+    try (FileChannel channel = FileChannel.open(file)) {
+      long[] bounds = split(channel, pool.getParallelism() * CHUNKS_PER_THREAD, pool);
+      CSVTokenizer first = readFirst(channel, bounds);
+      if (first == null) return ret;
+      if (hasHead) header.addAll(this.header);
+      int rowItemNum = first.size();
+      List<List<T>> chunks =
+          runChunks(
+              channel,
+              bounds,
+              tokenizer -> {
+                List<T> rows = new ArrayList<>();
+                CSVParser.parseRows(tokenizer, rowItemNum, creator, rows::add);
+                return rows;
+              });
+      for (List<T> rows : chunks) ret.addAll(rows);
+    }
+    return ret;
+  }
+
+  /**
+   * Parse the CSV data into a column-oriented table, each chunk filling its own builder
+   *
+   * @return the table, rows in file order, with every column's type inferred from its cells
+   */
+  public Table parseTable() throws Exception {
+    return parseTable(null);
+  }
+
+  /**
+   * Parse the CSV data into a column-oriented table with declared column types. Chunks that infer
+   * different types for a column are widened to a common one when merged.
+   *
+   * @param types the type of each column, null entries (or a null array) to infer them
+   * @return the table, rows in file order
+   */
+  public Table parseTable(ColumnType[] types) throws Exception {
+    try (FileChannel channel = FileChannel.open(file)) {
+      long[] bounds = split(channel, pool.getParallelism() * CHUNKS_PER_THREAD, pool);
+      CSVTokenizer first = readFirst(channel, bounds);
+      if (first == null) return new TableBuilder(List.of(), 0).build();
+      List<String> tableHeader = hasHead ? header : List.of();
+      int rowItemNum = first.size();
+      TableBuilder ret = CSVParser.newBuilder(tableHeader, rowItemNum, types);
+      List<TableBuilder> chunks =
+          runChunks(
+              channel,
+              bounds,
+              tokenizer -> {
+                TableBuilder builder = new TableBuilder(tableHeader, rowItemNum, types);
+                CSVParser.fillTable(tokenizer, builder);
+                return builder;
+              });
+      for (TableBuilder chunk : chunks) ret.append(chunk);
+      return ret.build();
+    }
+  }
+
+  /**
+   * Read the first record, which decides the header and the column count for every chunk
+   *
+   * @return the tokenizer positioned on the first record, or null if the file is empty
+   */
+  private CSVTokenizer readFirst(FileChannel channel, long[] bounds) throws Exception {
+    CSVTokenizer first = new CSVTokenizer(new MappedCSVReader(channel, 0, bounds[0]));
+    if (!first.next()) return null;
+    if (hasHead) this.header = new ArrayList<>(first.asList());
+    return first;
+  }
+
+  /** Work done on the tokenizer of one chunk */
+  private interface ChunkTask<R> {
+    R run(CSVTokenizer tokenizer) throws Exception;
+  }
+
+  /**
+   * Run a task over every chunk after the first record on the pool
+   *
+   * @return the results of the chunks, in file order
+   * @throws Exception the first failing chunk's error, with line numbers relative to the file
+   */
+  private <R> List<R> runChunks(FileChannel channel, long[] bounds, ChunkTask<R> task)
+      throws Exception {
+    List<Callable<R>> tasks = new ArrayList<>();
+    List<int[]> records = new ArrayList<>();
+    for (int i = 1; i < bounds.length; i++) {
+      long start = bounds[i - 1];
+      long end = bounds[i];
+      if (end <= start) continue;
+      int[] count = new int[1];
+      records.add(count);
+      tasks.add(
+          () -> {
+            CSVTokenizer tokenizer = new CSVTokenizer(new MappedCSVReader(channel, start, end));
+            R ret = task.run(tokenizer);
+            count[0] = tokenizer.record();
+            return ret;
+          });
+    }
+
+    List<Future<R>> futures = pool.invokeAll(tasks);
+    List<R> ret = new ArrayList<>();
+    int line = 1;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        ret.add(futures.get(i).get());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        // the pool wraps checked exceptions thrown by a callable in plain RuntimeExceptions
+        while (cause.getClass() == RuntimeException.class && cause.getCause() != null)
+          cause = cause.getCause();
+        if (cause instanceof WrongFormatCSVException w) throw w.shift(line);
+        if (cause instanceof FactoryFailureException f) {
+          System.err.println(f.getMessage());
+          System.err.println(f.getRow().toString());
+        }
+        if (cause instanceof Exception ex) throw ex;
+        throw e;
+      }
+      line += records.get(i)[0];
+    }
+    return ret;
+  }
+
+  /**
+   * Find chunk boundaries, following the same quoting rules as `CSVTokenizer`. The quote, comma and
+   * line-break bytes never occur inside a multi-byte UTF-8 character, so a byte-level scan is
+   * exact.
+   *
+   * <p>The file is cut into segments just after line breaks, and the segments are scanned on the
+   * pool. Just after a line break a record either starts or goes on inside a quoted cell, so each
+   * segment is scanned from both states; the second scan usually falls into step with the first
+   * within a block and stops. The state each segment really starts in is then chained through the
+   * segments in file order.
+   *
+   * @param chunks the number of chunks wanted
+   * @return the end of the first record, followed by the end of every chunk
+   */
+  static long[] split(FileChannel channel, int chunks, ForkJoinPool pool) throws Exception {
+    long size = channel.size();
+    List<Callable<BoundaryScan[]>> tasks = new ArrayList<>();
+    for (int i = 0; i < chunks; i++) {
+      long from = size * i / chunks;
+      long to = size * (i + 1) / chunks;
+      boolean first = i == 0;
+      boolean last = i == chunks - 1;
+      tasks.add(
+          () -> {
+            long start = first ? 0 : afterLineBreak(channel, from, size);
+            long end = last ? size : afterLineBreak(channel, to, size);
+            return scanSegment(channel, start, end);
+          });
+    }
+    List<Future<BoundaryScan[]>> futures = pool.invokeAll(tasks);
+
+    List<Long> bounds = new ArrayList<>();
+    long firstEnd = -1;
+    boolean quoted = false;
+    for (Future<BoundaryScan[]> future : futures) {
+      BoundaryScan[] scans;
+      try {
+        scans = future.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception ex) throw ex;
+        throw e;
+      }
+      BoundaryScan scan = scans[quoted ? 1 : 0];
+      if (firstEnd < 0 && scan.firstEnd >= 0) {
+        firstEnd = scan.firstEnd;
+        bounds.add(firstEnd);
+      }
+      // a segment starting outside quotes starts a record
+      long bound = quoted ? scan.firstLF : scan.start;
+      if (firstEnd >= 0 && bound > bounds.get(bounds.size() - 1)) bounds.add(bound);
+      quoted = scan.state == BoundaryScan.QUOTED;
+    }
+    if (bounds.isEmpty()) bounds.add(size);
+    if (bounds.get(bounds.size() - 1) < size) bounds.add(size);
+    long[] ret = new long[bounds.size()];
+    for (int i = 0; i < ret.length; i++) ret[i] = bounds.get(i);
+    return ret;
+  }
+
+  /**
+   * @return the position just after the first LF at or after a position, or the file size
+   */
+  private static long afterLineBreak(FileChannel channel, long from, long size) throws IOException {
+    if (from == 0) return 0;
+    byte[] buf = new byte[4096];
+    for (long pos = from; pos < size; ) {
+      int n = read(channel, buf, pos, (int) Math.min(buf.length, size - pos));
+      if (n == 0) break;
+      for (int i = 0; i < n; i++) if (buf[i] == '\n') return pos + i + 1;
+      pos += n;
+    }
+    return size;
+  }
+
+  /**
+   * Scan a segment that starts just after a line break, once from the start of a record and once
+   * from inside a quoted cell
+   *
+   * @return the two scans, in that order
+   */
+  private static BoundaryScan[] scanSegment(FileChannel channel, long start, long end)
+      throws IOException {
+    BoundaryScan outside = new BoundaryScan(start, false);
+    BoundaryScan inside = new BoundaryScan(start, true);
+    boolean inStep = false;
+    byte[] buf = new byte[SCAN_BLOCK];
+    for (long pos = start; pos < end; ) {
+      int n = read(channel, buf, pos, (int) Math.min(SCAN_BLOCK, end - pos));
+      // the file shrank under the scan
+      if (n == 0) break;
+      outside.scan(buf, n, pos);
+      if (!inStep) {
+        inside.scan(buf, n, pos);
+        // once both scans are in the same state they stay so, and the second has its boundary
+        inStep = inside.firstLF >= 0 && inside.sameState(outside);
+      }
+      pos += n;
+    }
+    if (inStep) inside.state = outside.state;
+    return new BoundaryScan[] {outside, inside};
+  }
+
+  /**
+   * Read bytes at a position, filling the buffer up to the length unless the file ends first
+   *
+   * @return the number of bytes read
+   */
+  private static int read(FileChannel channel, byte[] buf, long pos, int length)
+      throws IOException {
+    ByteBuffer dst = ByteBuffer.wrap(buf, 0, length);
+    while (dst.hasRemaining()) {
+      if (channel.read(dst, pos + dst.position()) < 0) break;
+    }
+    return dst.position();
+  }
+
+  /** The quoting state of a scan over one segment, and the record ends it has found */
+  private static final class BoundaryScan {
+    static final int PLAIN = 0;
+    static final int QUOTED = 1;
+    static final int AFTER_QUOTE = 2;
+
+    /** where the segment starts */
+    final long start;
+
+    int state;
+    boolean cellStart;
+    boolean prevCR;
+    /** the end of the first record in the segment, a lone CR ending it just like LF does */
+    long firstEnd = -1;
+    /** the end of the first record in the segment that ends with LF */
+    long firstLF = -1;
+
+    BoundaryScan(long start, boolean quoted) {
+      this.start = start;
+      this.state = quoted ? QUOTED : PLAIN;
+      this.cellStart = !quoted;
+    }
+
+    /** Scan a block of the segment's bytes, the first of them at a position in the file */
+    void scan(byte[] buf, int n, long base) {
+      int state = this.state;
+      boolean cellStart = this.cellStart;
+      if (prevCR && n > 0) {
+        prevCR = false;
+        // a lone CR ends the first record just like LF does
+        if (firstEnd < 0 && buf[0] != '\n') firstEnd = base;
+      }
+      int i = 0;
+      // every byte matters until the first record ends
+      for (; i < n && firstLF < 0; i++) {
+        byte c = buf[i];
+        if (state == QUOTED) {
+          while (c != '"' && ++i < n) c = buf[i];
+          if (i < n) state = AFTER_QUOTE;
+          continue;
+        }
+        if (state == AFTER_QUOTE && c == '"') {
+          state = QUOTED;
+          continue;
+        }
+        state = PLAIN;
+        if (c == '"' && cellStart) {
+          state = QUOTED;
+          cellStart = false;
+        } else if (c == ',') {
+          cellStart = true;
+        } else if (c == '\n') {
+          cellStart = true;
+          firstLF = base + i + 1;
+          if (firstEnd < 0) firstEnd = firstLF;
+        } else if (c == '\r') {
+          cellStart = true;
+          if (i + 1 == n) prevCR = true;
+          else if (firstEnd < 0 && buf[i + 1] != '\n') firstEnd = base + i + 1;
+        } else {
+          cellStart = false;
+        }
+      }
+      // after that only quotes change the state, and a quote outside a quoted cell opens one only
+      // if it starts a cell, so the scan can go from quote to quote
+      for (; i < n; i++) {
+        byte c = buf[i];
+        if (state == QUOTED) {
+          while (c != '"' && ++i < n) c = buf[i];
+          if (i < n) state = AFTER_QUOTE;
+          continue;
+        }
+        if (state == AFTER_QUOTE) {
+          if (c == '"') {
+            state = QUOTED;
+            continue;
+          }
+          state = PLAIN;
+          cellStart = false;
+        }
+        int from = i;
+        while (c != '"' && ++i < n) c = buf[i];
+        if (i > from) cellStart = endsCell(buf[i - 1]);
+        if (i == n) break;
+        if (cellStart) state = QUOTED;
+        cellStart = false;
+      }
+      this.state = state;
+      this.cellStart = cellStart;
+    }
+
+    /**
+     * @return true if the next byte after this one, outside a quoted cell, starts a cell
+     */
+    private static boolean endsCell(byte c) {
+      return c == ',' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * @return true if the scans are in the same state, ignoring the lone CR that only matters
+     *     before the first record ends
+     */
+    boolean sameState(BoundaryScan other) {
+      return state == other.state && cellStart == other.cellStart;
+    }
+  }
+}
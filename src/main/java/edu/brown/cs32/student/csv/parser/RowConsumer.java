@@ -0,0 +1,13 @@
+package edu.brown.cs32.student.csv.parser;
+
+/** A push-style callback that receives each parsed row while `CSVParser` streams the file */
+@FunctionalInterface
+public interface RowConsumer<T> {
+  /**
+   * Accept one parsed row
+   *
+   * @param row the row object produced by the creator
+   * @throws Exception for errors when the consumer handles the row
+   */
+  void accept(T row) throws Exception;
+}
@@ -0,0 +1,398 @@
+package edu.brown.cs32.student.csv.search;
+
+import edu.brown.cs32.student.csv.table.Column;
+import edu.brown.cs32.student.csv.table.DoubleColumn;
+import edu.brown.cs32.student.csv.table.IntColumn;
+import edu.brown.cs32.student.csv.table.LongColumn;
+import edu.brown.cs32.student.csv.table.NumericColumn;
+import edu.brown.cs32.student.csv.table.StringColumn;
+import edu.brown.cs32.student.csv.table.Table;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Compiled aggregates of a table's rows, optionally per group of rows sharing a column's value. It
+ * holds column indices but no table, and reads the column types only when it runs, so unlike a
+ * `QueryPlan` it can run against any table with the header it was compiled for.
+ *
+ * <p>The aggregates are computed in one pass over the rows: every partition of the rows (see
+ * `ParallelScan`) keeps its own groups and running values, and the partitions are merged in row
+ * order at the end. Groups and distinct values are keyed by a long, a text cell's dictionary code
+ * or a number's value, so the pass never makes a `String`. The numeric aggregates of a text column
+ * read its cells the way a range query does, and skip the cells that are not numbers. The sums,
+ * least and greatest values of an int or long column are exact: they are kept as longs, and a sum
+ * past the range of a long carries on as a `BigDecimal`.
+ */
+public final class Aggregation {
+  /** What an aggregate computes */
+  public enum Function {
+    /** the number of rows */
+    COUNT,
+    /** the number of distinct values of a column */
+    DISTINCT,
+    SUM,
+    MIN,
+    MAX,
+    /** the mean of the numbers of a column */
+    AVG
+  }
+
+  /**
+   * One aggregate
+   *
+   * @param function what it computes
+   * @param column the column it reads, or -1 for `COUNT`
+   * @param label its name in the results, like `sum(Mag)`
+   */
+  public record Aggregate(Function function, int column, String label) {}
+
+  private final List<Aggregate> aggregates;
+  /** the column the rows are grouped by, or -1 for a single group of every row */
+  private final int groupBy;
+  /** the name of the group's value in the results */
+  private final String groupLabel;
+
+  /**
+   * Constructor
+   *
+   * @param aggregates the aggregates to compute
+   * @param groupBy the column to group the rows by, or -1 for no groups
+   * @param groupLabel the name of the group's value in the results, if there are groups
+   */
+  Aggregation(List<Aggregate> aggregates, int groupBy, String groupLabel) {
+    this.aggregates = List.copyOf(aggregates);
+    this.groupBy = groupBy;
+    this.groupLabel = groupLabel;
+  }
+
+  /**
+   * @return the aggregates, in the order of the results
+   */
+  public List<Aggregate> aggregates() {
+    return aggregates;
+  }
+
+  /**
+   * Compute the aggregates
+   *
+   * @param ex the table, and the pool to split the pass on
+   * @param rows the rows to aggregate, or null for every row of the window
+   * @return one map per group, in the order of each group's first row, from the group's value and
+   *     each aggregate's label to its value; without groups, a single map even if no row matched
+   */
+  List<Map<String, Object>> run(Execution ex, BitSet rows) {
+    Table table = ex.table;
+    IntToLongFunction group = groupBy < 0 ? null : key(table.column(groupBy));
+    IntToLongFunction[] keys = new IntToLongFunction[aggregates.size()];
+    IntToLongFunction[] wholes = new IntToLongFunction[aggregates.size()];
+    IntToDoubleFunction[] numbers = new IntToDoubleFunction[aggregates.size()];
+    for (int i = 0; i < keys.length; i++) {
+      Aggregate a = aggregates.get(i);
+      if (a.function() == Function.COUNT) continue;
+      Column column = table.column(a.column());
+      if (a.function() == Function.DISTINCT) keys[i] = key(column);
+      else if (column instanceof IntColumn || column instanceof LongColumn) wholes[i] = key(column);
+      else numbers[i] = number(column);
+    }
+
+    List<Partial> parts =
+        ex.map(
+            (from, to) -> {
+              Partial p = new Partial(wholes);
+              if (rows == null) {
+                for (int r = from; r < to; r++) p.add(r, group, keys, wholes, numbers);
+              } else {
+                for (int r = rows.nextSetBit(from); r >= 0 && r < to; r = rows.nextSetBit(r + 1))
+                  p.add(r, group, keys, wholes, numbers);
+              }
+              return p;
+            });
+    Partial total = parts.get(0);
+    for (int i = 1; i < parts.size(); i++) total.merge(parts.get(i));
+
+    List<Map<String, Object>> ret = new ArrayList<>();
+    if (group == null && total.groups.size() == 0) total.group(0, 0);
+    for (int g = 0; g < total.groups.size(); g++) {
+      Map<String, Object> values = new LinkedHashMap<>();
+      if (group != null) values.put(groupLabel, table.get(total.firstRows[g], groupBy));
+      for (int i = 0; i < aggregates.size(); i++)
+        values.put(aggregates.get(i).label(), total.value(i, g));
+      ret.add(values);
+    }
+    return ret;
+  }
+
+  /**
+   * @return the key of every row's cell: equal keys for equal values
+   */
+  private static IntToLongFunction key(Column column) {
+    if (column instanceof StringColumn strings) return strings::code;
+    if (column instanceof IntColumn ints) return ints::getInt;
+    if (column instanceof LongColumn longs) return longs::getLong;
+    if (column instanceof DoubleColumn doubles)
+      // 0.0 and -0.0 are the same value
+      return r -> Double.doubleToLongBits(doubles.getDouble(r) + 0.0);
+    throw new IllegalStateException("Unknown column type " + column.type());
+  }
+
+  /**
+   * @return the number of every row's cell, or NaN if it is not a number
+   */
+  private static IntToDoubleFunction number(Column column) {
+    if (column instanceof NumericColumn numeric) return numeric::getDouble;
+    if (column instanceof StringColumn strings) {
+      double[] values = strings.numbers();
+      return r -> values[strings.code(r)];
+    }
+    return r -> Double.NaN;
+  }
+
+  /**
+   * A number as a whole number if it is one, so a count or the sum of an int column reads as one
+   */
+  private static Object number(double value) {
+    if (value == Math.rint(value) && Math.abs(value) < 0x1p53) return (long) value;
+    return value;
+  }
+
+  /**
+   * An exact sum as a long if it fits in one, so a sum that overflowed back into range reads as one
+   */
+  private static Object whole(BigDecimal value) {
+    try {
+      return value.longValueExact();
+    } catch (ArithmeticException e) {
+      return value;
+    }
+  }
+
+  /** The groups and running values of some of the rows */
+  private final class Partial {
+    final LongIds groups = new LongIds();
+    /** the first row of every group */
+    int[] firstRows = new int[16];
+    /** the number of rows of every group */
+    long[] counts = new long[16];
+    /** for every aggregate and group, the number of cells it has read */
+    final long[][] cells = new long[aggregates.size()][16];
+    /** for every aggregate and group, the sum, least or greatest number read */
+    final double[][] values = new double[aggregates.size()][16];
+    /** for every aggregate of an int or long column and group, the same as a long */
+    final long[][] longs = new long[aggregates.size()][16];
+    /** for every sum of an int or long column and group, the part past the range of a long */
+    final BigDecimal[][] overflow = new BigDecimal[aggregates.size()][];
+    /** true for the aggregates of int and long columns */
+    final boolean[] exact;
+    /** for every distinct count and group, the distinct values read */
+    final LongIds[][] distinct = new LongIds[aggregates.size()][];
+
+    Partial(IntToLongFunction[] wholes) {
+      exact = new boolean[wholes.length];
+      for (int i = 0; i < wholes.length; i++) exact[i] = wholes[i] != null;
+    }
+
+    /**
+     * @return the id of the group with a key, new with `firstRow` as its first row if needed
+     */
+    int group(long key, int firstRow) {
+      int size = groups.size();
+      int g = groups.id(key);
+      if (g < size) return g;
+      if (g == counts.length) {
+        int n = g * 2;
+        firstRows = Arrays.copyOf(firstRows, n);
+        counts = Arrays.copyOf(counts, n);
+        for (int i = 0; i < cells.length; i++) {
+          cells[i] = Arrays.copyOf(cells[i], n);
+          values[i] = Arrays.copyOf(values[i], n);
+          longs[i] = Arrays.copyOf(longs[i], n);
+          if (distinct[i] != null) distinct[i] = Arrays.copyOf(distinct[i], n);
+          if (overflow[i] != null) overflow[i] = Arrays.copyOf(overflow[i], n);
+        }
+      }
+      firstRows[g] = firstRow;
+      return g;
+    }
+
+    void add(
+        int row,
+        IntToLongFunction group,
+        IntToLongFunction[] keys,
+        IntToLongFunction[] wholes,
+        IntToDoubleFunction[] numbers) {
+      int g = group(group == null ? 0 : group.applyAsLong(row), row);
+      counts[g]++;
+      for (int i = 0; i < keys.length; i++) {
+        Function f = aggregates.get(i).function();
+        if (f == Function.COUNT) continue;
+        if (f == Function.DISTINCT) {
+          distinct(i, g).id(keys[i].applyAsLong(row));
+          continue;
+        }
+        if (exact[i]) {
+          add(i, g, 1, wholes[i].applyAsLong(row));
+          continue;
+        }
+        double v = numbers[i].applyAsDouble(row);
+        if (!Double.isNaN(v)) add(i, g, 1, v);
+      }
+    }
+
+    /** Fold `n` more whole cells, summing to or bounded by `v`, into an aggregate of a group */
+    private void add(int i, int g, long n, long v) {
+      long[] vs = longs[i];
+      switch (aggregates.get(i).function()) {
+        case MIN -> vs[g] = cells[i][g] == 0 ? v : Math.min(vs[g], v);
+        case MAX -> vs[g] = cells[i][g] == 0 ? v : Math.max(vs[g], v);
+        default -> {
+          try {
+            vs[g] = Math.addExact(vs[g], v);
+          } catch (ArithmeticException e) {
+            // move the sum so far past the long, and keep summing from 0
+            carry(i, g, BigDecimal.valueOf(vs[g]).add(BigDecimal.valueOf(v)));
+            vs[g] = 0;
+          }
+        }
+      }
+      cells[i][g] += n;
+    }
+
+    /** Add to the part of a sum past the range of a long */
+    private void carry(int i, int g, BigDecimal v) {
+      if (overflow[i] == null) overflow[i] = new BigDecimal[counts.length];
+      overflow[i][g] = overflow[i][g] == null ? v : overflow[i][g].add(v);
+    }
+
+    /**
+     * @return the exact sum of an int or long column for a group
+     */
+    private BigDecimal bigSum(int i, int g) {
+      BigDecimal sum = BigDecimal.valueOf(longs[i][g]);
+      return overflow[i] == null || overflow[i][g] == null ? sum : sum.add(overflow[i][g]);
+    }
+
+    /** Fold `n` more cells, summing to or bounded by `v`, into an aggregate of a group */
+    private void add(int i, int g, long n, double v) {
+      double[] vs = values[i];
+      switch (aggregates.get(i).function()) {
+        case MIN -> vs[g] = cells[i][g] == 0 ? v : Math.min(vs[g], v);
+        case MAX -> vs[g] = cells[i][g] == 0 ? v : Math.max(vs[g], v);
+        default -> vs[g] += v;
+      }
+      cells[i][g] += n;
+    }
+
+    private LongIds distinct(int i, int g) {
+      if (distinct[i] == null) distinct[i] = new LongIds[counts.length];
+      if (distinct[i][g] == null) distinct[i][g] = new LongIds();
+      return distinct[i][g];
+    }
+
+    /** Add the groups and values of the rows after these */
+    void merge(Partial other) {
+      for (int og = 0; og < other.groups.size(); og++) {
+        int g = group(other.groups.key(og), other.firstRows[og]);
+        counts[g] += other.counts[og];
+        for (int i = 0; i < aggregates.size(); i++) {
+          if (aggregates.get(i).function() == Function.DISTINCT) {
+            LongIds from = other.distinct[i] == null ? null : other.distinct[i][og];
+            if (from == null) continue;
+            LongIds to = distinct(i, g);
+            for (int k = 0; k < from.size(); k++) to.id(from.key(k));
+          } else if (other.cells[i][og] > 0 && exact[i]) {
+            add(i, g, other.cells[i][og], other.longs[i][og]);
+            if (other.overflow[i] != null && other.overflow[i][og] != null)
+              carry(i, g, other.overflow[i][og]);
+          } else if (other.cells[i][og] > 0) {
+            add(i, g, other.cells[i][og], other.values[i][og]);
+          }
+        }
+      }
+    }
+
+    /**
+     * @return the value of an aggregate for a group, or null for the least, greatest or mean of no
+     *     numbers
+     */
+    Object value(int i, int g) {
+      long n = cells[i][g];
+      if (exact[i]) {
+        return switch (aggregates.get(i).function()) {
+          case SUM -> overflow[i] == null || overflow[i][g] == null
+              ? longs[i][g]
+              : whole(bigSum(i, g));
+          case MIN, MAX -> n == 0 ? null : longs[i][g];
+          default -> n == 0
+              ? null
+              : bigSum(i, g).divide(BigDecimal.valueOf(n), MathContext.DECIMAL128).doubleValue();
+        };
+      }
+      return switch (aggregates.get(i).function()) {
+        case COUNT -> counts[g];
+        case DISTINCT -> (long)
+            (distinct[i] == null || distinct[i][g] == null ? 0 : distinct[i][g].size());
+        case SUM -> number(values[i][g]);
+        case MIN, MAX -> n == 0 ? null : number(values[i][g]);
+        case AVG -> n == 0 ? null : values[i][g] / n;
+      };
+    }
+  }
+
+  /** Dense ids of long keys, in insertion order, in an open-addressing table */
+  static final class LongIds {
+    /** the id + 1 of the key in each slot, or 0 for an empty slot */
+    private int[] slots = new int[16];
+    /** the key of every id */
+    private long[] keys = new long[8];
+
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    long key(int id) {
+      return keys[id];
+    }
+
+    private static int slot(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * @return the key's id, giving it the next one if it is new
+     */
+    int id(long key) {
+      int mask = slots.length - 1;
+      int i = slot(key, mask);
+      for (; slots[i] != 0; i = (i + 1) & mask) {
+        if (keys[slots[i] - 1] == key) return slots[i] - 1;
+      }
+      if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+      keys[size] = key;
+      slots[i] = ++size;
+      // keep the table at most half full
+      if (size * 2 > slots.length) rehash();
+      return size - 1;
+    }
+
+    private void rehash() {
+      slots = new int[slots.length * 2];
+      int mask = slots.length - 1;
+      for (int id = 0; id < size; id++) {
+        int i = slot(keys[id], mask);
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = id + 1;
+      }
+    }
+  }
+}
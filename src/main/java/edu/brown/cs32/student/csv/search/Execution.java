@@ -0,0 +1,152 @@
+package edu.brown.cs32.student.csv.search;
+
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * What a plan runs against: a table, its index, how to scan the rows the index cannot answer, and
+ * the window of rows to match, so a page of results only runs the plan on the rows it needs. The
+ * nodes report the rows they read here; with a `Profile`, for an explained run, they are recorded.
+ * The index lookups of the basic queries are kept for the whole run, so a node that is estimated by
+ * every enclosing `and` and then matched, possibly in several windows, looks its value up once.
+ */
+final class Execution {
+  final Table table;
+  /** the table's index, or null to scan the columns */
+  final TableIndex index;
+  /** the pool for scans, or null to scan on the calling thread */
+  final ParallelScan scanner;
+  /** the first row to match */
+  final int from;
+  /** the end (exclusive) of the rows to match */
+  final int to;
+  /** where the nodes' runs are recorded, or null to record nothing */
+  final Profile profile;
+  /** the rows of basic queries already scanned by a `SharedScan`, or null */
+  final Map<QueryPlan, BitSet> shared;
+  /** the index lookup of every basic query made so far, by node; shared by the run's windows */
+  private final Map<QueryPlan, Object> lookups;
+
+  Execution(Table table, TableIndex index, ParallelScan scanner) {
+    this(table, index, scanner, 0, table.rowCount());
+  }
+
+  Execution(Table table, TableIndex index, ParallelScan scanner, int from, int to) {
+    this(table, index, scanner, from, to, null);
+  }
+
+  Execution(
+      Table table, TableIndex index, ParallelScan scanner, int from, int to, Profile profile) {
+    this(table, index, scanner, from, to, profile, null, new IdentityHashMap<>());
+  }
+
+  private Execution(
+      Table table,
+      TableIndex index,
+      ParallelScan scanner,
+      int from,
+      int to,
+      Profile profile,
+      Map<QueryPlan, BitSet> shared,
+      Map<QueryPlan, Object> lookups) {
+    this.table = table;
+    this.index = index;
+    this.scanner = scanner;
+    this.from = from;
+    this.to = to;
+    this.profile = profile;
+    this.shared = shared;
+    this.lookups = lookups;
+  }
+
+  /**
+   * @return the same run on another window of rows, keeping the lookups made so far
+   */
+  Execution window(int from, int to) {
+    return new Execution(table, index, scanner, from, to, profile, shared, lookups);
+  }
+
+  /**
+   * @return the same run, taking the rows of some basic queries from a `SharedScan`
+   */
+  Execution sharing(Map<QueryPlan, BitSet> shared) {
+    return new Execution(table, index, scanner, from, to, profile, shared, lookups);
+  }
+
+  /**
+   * Look a basic query up in the index once per run
+   *
+   * @param node the basic query
+   * @param lookup the lookup, made on the first call for the node
+   * @return the lookup's result, possibly null
+   */
+  @SuppressWarnings("unchecked")
+  <T> T lookup(QueryPlan node, Supplier<T> lookup) {
+    if (lookups.containsKey(node)) return (T) lookups.get(node);
+    T ret = lookup.get();
+    lookups.put(node, ret);
+    return ret;
+  }
+
+  /**
+   * @return true if the window holds the row
+   */
+  boolean inWindow(int row) {
+    return row >= from && row < to;
+  }
+
+  /**
+   * @return the number of rows in the window
+   */
+  int rowCount() {
+    return to - from;
+  }
+
+  /**
+   * Scan every row of the window
+   *
+   * @param scan the scan of a range of rows
+   * @return the matching rows
+   */
+  BitSet scan(ParallelScan.RangeScan scan) {
+    read(rowCount(), false);
+    if (scanner == null) return ParallelScan.sequential(from, to, scan);
+    return scanner.scan(from, to, scan);
+  }
+
+  /**
+   * Report rows the running node read
+   *
+   * @param rows how many
+   * @param index true if they came from the index
+   */
+  void read(long rows, boolean index) {
+    if (profile != null) profile.read(rows, index);
+  }
+
+  /**
+   * Report that the running node tested some rows one by one
+   *
+   * @param candidates the rows, only counted if the run is profiled
+   */
+  void read(BitSet candidates) {
+    if (profile != null) profile.read(candidates.cardinality(), false);
+  }
+
+  /**
+   * Run a computation on partitions of the window
+   *
+   * @param task the computation of a range of rows
+   * @return the result of every partition, in row order
+   */
+  <T> List<T> map(ParallelScan.RangeTask<T> task) {
+    if (scanner == null) return Collections.singletonList(task.run(from, to));
+    return scanner.map(from, to, task);
+  }
+}
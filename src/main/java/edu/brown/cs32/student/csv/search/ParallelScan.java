@@ -0,0 +1,157 @@
+package edu.brown.cs32.student.csv.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Scan the rows of a table on a shared fork-join pool, for queries the index cannot answer. The row
+ * range is cut into partitions that start on a multiple of 64 rows, so every partition sets its own
+ * words of one bit array and the results come out merged, in row order, with no extra pass. A query
+ * never runs more partitions at once than its parallelism cap, which leaves the rest of the pool to
+ * concurrent requests. Other computations over the rows, like aggregates, are partitioned the same
+ * way with `map`.
+ */
+public class ParallelScan {
+  /** fewest rows worth a partition of their own */
+  private static final int MIN_PARTITION_ROWS = 1 << 16;
+
+  private final ForkJoinPool pool;
+  private final int maxParallelism;
+
+  /** Constructor, scanning on the common fork-join pool */
+  public ParallelScan(int maxParallelism) {
+    this(ForkJoinPool.commonPool(), maxParallelism);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param pool the pool shared by every query
+   * @param maxParallelism how many partitions one scan may run at once, at least 1
+   */
+  public ParallelScan(ForkJoinPool pool, int maxParallelism) {
+    if (maxParallelism < 1)
+      throw new IllegalArgumentException(
+          "maxParallelism must be at least 1, got " + maxParallelism);
+    this.pool = pool;
+    this.maxParallelism = maxParallelism;
+  }
+
+  /**
+   * @return how many partitions one scan may run at once
+   */
+  public int maxParallelism() {
+    return maxParallelism;
+  }
+
+  /** A scan of a range of rows */
+  interface RangeScan {
+    /**
+     * @param from the first row to test
+     * @param to the end (exclusive) of the rows to test
+     * @param words the bitmap to set the matching rows in, ORing into the words shared with other
+     *     ranges
+     */
+    void scan(int from, int to, long[] words);
+  }
+
+  /**
+   * A computation over a range of rows
+   *
+   * @param <T> what it computes
+   */
+  interface RangeTask<T> {
+    /**
+     * @param from the first row
+     * @param to the end (exclusive) of the rows
+     * @return the result for the range
+     */
+    T run(int from, int to);
+  }
+
+  /**
+   * Scan a range of rows on the calling thread
+   *
+   * @param from the first row to scan
+   * @param to the end (exclusive) of the rows to scan
+   * @param scan the scan of a range
+   * @return the matching rows
+   */
+  static BitSet sequential(int from, int to, RangeScan scan) {
+    long[] words = new long[(to + 63) >>> 6];
+    scan.scan(from, to, words);
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Scan a range of rows, in parallel when there are enough of them
+   *
+   * @param from the first row to scan
+   * @param to the end (exclusive) of the rows to scan
+   * @param scan the scan of a range, safe to run on several disjoint ranges at once
+   * @return the matching rows
+   */
+  BitSet scan(int from, int to, RangeScan scan) {
+    long[] words = new long[(to + 63) >>> 6];
+    map(
+        from,
+        to,
+        (start, end) -> {
+          scan.scan(start, end, words);
+          return null;
+        });
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Run a computation on partitions of a range of rows, in parallel when there are enough of them
+   *
+   * @param from the first row
+   * @param to the end (exclusive) of the rows
+   * @param task the computation of a partition, safe to run on several disjoint ranges at once
+   * @return the result of every partition, in row order
+   */
+  <T> List<T> map(int from, int to, RangeTask<T> task) {
+    int parts =
+        Math.min(
+            Math.min(maxParallelism, pool.getParallelism()),
+            (to - from + MIN_PARTITION_ROWS - 1) / MIN_PARTITION_ROWS);
+    if (parts <= 1) return Collections.singletonList(task.run(from, to));
+
+    int firstWord = from >>> 6;
+    int lastWord = (to + 63) >>> 6;
+    int wordsPerPart = (lastWord - firstWord + parts - 1) / parts;
+    List<Callable<T>> tasks = new ArrayList<>(parts);
+    for (int w = firstWord; w < lastWord; w += wordsPerPart) {
+      int start = Math.max(from, w << 6);
+      int end = (int) Math.min(to, (long) (w + wordsPerPart) << 6);
+      tasks.add(() -> task.run(start, end));
+    }
+
+    List<Future<T>> futures = pool.invokeAll(tasks);
+    List<T> ret = new ArrayList<>(futures.size());
+    for (Future<T> f : futures) {
+      try {
+        ret.add(f.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("scan interrupted", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        // the pool wraps exceptions thrown by a callable in plain RuntimeExceptions
+        while (cause.getClass() == RuntimeException.class && cause.getCause() != null)
+          cause = cause.getCause();
+        if (cause instanceof RuntimeException r) throw r;
+        if (cause instanceof Error err) throw err;
+        throw new IllegalStateException(cause);
+      }
+    }
+    return ret;
+  }
+}
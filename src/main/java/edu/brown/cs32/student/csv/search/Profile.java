@@ -0,0 +1,151 @@
+package edu.brown.cs32.student.csv.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * What each node of a plan did in one run: how many rows it was given, how many it read, whether it
+ * read them from the index, how many it matched and how long it took. A run records into a profile
+ * only when its `Execution` has one; the nodes report their reads through the `Execution` on every
+ * run, and those reports are dropped when there is no profile.
+ */
+public final class Profile {
+  /** One node's run */
+  public static final class Step {
+    private final QueryPlan plan;
+    private final long estimate;
+    /** the rows the node was given, or -1 for every row of the window */
+    private final long candidates;
+
+    private long scanned;
+    private boolean index;
+    private long matched;
+    private long nanos;
+    private final List<Step> children = new ArrayList<>();
+
+    private Step(QueryPlan plan, long estimate, long candidates) {
+      this.plan = plan;
+      this.estimate = estimate;
+      this.candidates = candidates;
+    }
+
+    /**
+     * @return the number of rows the node was given, or -1 for every row of the window
+     */
+    public long candidates() {
+      return candidates;
+    }
+
+    /**
+     * @return the rows the node read: cells it tested, or rows it read from the index
+     */
+    public long scanned() {
+      return scanned;
+    }
+
+    /**
+     * @return true if the node read rows from the index
+     */
+    public boolean index() {
+      return index;
+    }
+
+    /**
+     * @return the rows the node matched
+     */
+    public long matched() {
+      return matched;
+    }
+
+    /**
+     * @return the wall time of the node, including its children, in nanoseconds
+     */
+    public long nanos() {
+      return nanos;
+    }
+
+    /**
+     * @return the runs of the node's children, in the order they ran; a child that did not have to
+     *     run is left out
+     */
+    public List<Step> children() {
+      return children;
+    }
+
+    /**
+     * @return the step as a map for a Json response, with its children nested
+     */
+    public Map<String, Object> toMap() {
+      Map<String, Object> ret = new LinkedHashMap<>();
+      ret.put("node", plan.toString());
+      ret.put("estimated rows", estimate);
+      ret.put("rows in", candidates < 0 ? "all" : candidates);
+      ret.put("rows scanned", scanned);
+      ret.put("rows matched", matched);
+      ret.put("index used", index);
+      ret.put("time ms", nanos / 1e6);
+      if (!children.isEmpty()) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Step child : children) list.add(child.toMap());
+        ret.put("children", list);
+      }
+      return ret;
+    }
+  }
+
+  /** the steps still running, innermost first */
+  private final Deque<Step> running = new ArrayDeque<>();
+
+  private Step root;
+
+  /**
+   * @return the run of the plan's root, or null if the plan has not run
+   */
+  public Step root() {
+    return root;
+  }
+
+  /**
+   * Run a node, recording its step under the step of the node that runs it
+   *
+   * @param plan the node
+   * @param ex what the node runs against
+   * @param candidates the rows the node is given, or null for every row of the window
+   * @param match the node's own run
+   * @return the rows the node matched
+   */
+  BitSet run(QueryPlan plan, Execution ex, BitSet candidates, Supplier<BitSet> match) {
+    Step step =
+        new Step(plan, plan.estimate(ex), candidates == null ? -1 : candidates.cardinality());
+    if (running.isEmpty()) root = step;
+    else running.peek().children.add(step);
+    running.push(step);
+    long start = System.nanoTime();
+    try {
+      BitSet ret = match.get();
+      step.nanos = System.nanoTime() - start;
+      step.matched = ret.cardinality();
+      return ret;
+    } finally {
+      running.pop();
+    }
+  }
+
+  /**
+   * Count rows the running node read
+   *
+   * @param rows how many
+   * @param index true if they came from the index
+   */
+  void read(long rows, boolean index) {
+    Step step = running.peek();
+    step.scanned += rows;
+    step.index |= index;
+  }
+}
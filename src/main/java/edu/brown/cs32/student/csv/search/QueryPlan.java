@@ -0,0 +1,650 @@
+package edu.brown.cs32.student.csv.search;
+
+import edu.brown.cs32.student.csv.table.Column;
+import edu.brown.cs32.student.csv.table.NumericRange;
+import edu.brown.cs32.student.csv.table.Postings;
+import edu.brown.cs32.student.csv.table.StringColumn;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+import edu.brown.cs32.student.csv.table.TextMatch;
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A compiled query: the query tree with column names resolved to indices. A plan holds no reference
+ * to a table, so it can be cached, but it is only valid for the version of the dataset it was
+ * compiled for: besides the header, it is bound to that table's column count and column types. A
+ * case-insensitive equality becomes a text match on a text column and an exact comparison on a
+ * numeric one (see `Search.equalsIgnoringCase`), and one without a column expands to every column
+ * the table had. `QueryPlanCache` keys plans by dataset version, so a cached plan only runs against
+ * the table it was compiled for. An equality query keeps its value as text, and a run resolves it
+ * against the table's index, to a dictionary code or a parsed number. Ranges and text matches are
+ * parsed and folded when the plan is compiled.
+ *
+ * <p>Plans are optimized as they run. Each node estimates how many rows it matches, from the index
+ * when there is one and from column statistics otherwise; a text match the index can only answer by
+ * testing every distinct value is guessed instead, so estimating it costs nothing. A basic query
+ * looks its value up in the index once per run (see `Execution.lookup`). An `and` runs its more
+ * selective side first and only tests the other side on the rows that side matched, stopping as
+ * soon as a side matches nothing. `not` is pushed down to the basic queries when the plan is
+ * compiled (see `not`). Basic queries the index cannot answer scan their columns, split across a
+ * pool when the plan is run with a `ParallelScan`.
+ */
+public abstract class QueryPlan {
+  /** share of the rows a basic query on a column without statistics is guessed to match */
+  private static final double DEFAULT_SELECTIVITY = 0.1;
+  /** share of the rows a range on a column without an index is guessed to match */
+  private static final double RANGE_SELECTIVITY = 1.0 / 3;
+
+  /**
+   * Run the plan
+   *
+   * @param table the table to search
+   * @param index the table's index, or null to scan the columns
+   * @return a bitset of the matching rows
+   */
+  public BitSet execute(Table table, TableIndex index) {
+    return execute(new Execution(table, index, null), null);
+  }
+
+  /**
+   * Run the plan, scanning the columns the index cannot answer in parallel
+   *
+   * @param table the table to search
+   * @param index the table's index, or null to scan the columns
+   * @param scanner the pool to scan on
+   * @return a bitset of the matching rows
+   */
+  public BitSet execute(Table table, TableIndex index, ParallelScan scanner) {
+    return execute(new Execution(table, index, scanner), null);
+  }
+
+  /**
+   * Run the plan on some of the rows, recording the run if the execution is profiled
+   *
+   * @param candidates the rows to test, or null for all rows; never modified
+   * @return a bitset of the matching rows, a subset of the candidates
+   */
+  final BitSet execute(Execution ex, BitSet candidates) {
+    if (ex.profile == null) return matchOrShare(ex, candidates);
+    return ex.profile.run(this, ex, candidates, () -> matchOrShare(ex, candidates));
+  }
+
+  /** Run the node, or take its rows from a scan shared with other plans */
+  private BitSet matchOrShare(Execution ex, BitSet candidates) {
+    BitSet shared = ex.shared == null ? null : ex.shared.get(this);
+    if (shared == null) return match(ex, candidates);
+    BitSet ret = (BitSet) shared.clone();
+    if (candidates != null) ret.and(candidates);
+    return ret;
+  }
+
+  /**
+   * This node's run of `execute`, reporting the rows it reads to the execution
+   *
+   * @param candidates the rows to test, or null for all rows; never modified
+   * @return a bitset of the matching rows, a subset of the candidates
+   */
+  abstract BitSet match(Execution ex, BitSet candidates);
+
+  /**
+   * @return an estimate of how many rows the plan matches
+   */
+  abstract long estimate(Execution ex);
+
+  /**
+   * Visit the basic queries of the plan
+   *
+   * @param leaves receives every basic query, left to right
+   */
+  void leaves(Consumer<QueryPlan> leaves) {
+    leaves.accept(this);
+  }
+
+  /**
+   * The scan a basic query runs on every row when the index cannot answer it, so `SharedScan` can
+   * run it together with the scans of other plans
+   *
+   * @return the scan of a range of rows, or null if the node does not scan
+   */
+  ParallelScan.RangeScan scan(Execution ex) {
+    return null;
+  }
+
+  /**
+   * @return the column `scan` reads, or -1 for every column
+   */
+  int scannedColumn() {
+    return -1;
+  }
+
+  /**
+   * Negate a plan, pushing the negation down to the basic queries with De Morgan's laws, so an
+   * enclosing `and` can still order and filter the negated parts
+   *
+   * @param child the plan to negate
+   * @return the negated plan
+   */
+  static QueryPlan not(QueryPlan child) {
+    if (child instanceof Not n) return n.child;
+    if (child instanceof And a) return new Or(not(a.left), not(a.right));
+    if (child instanceof Or o) return new And(not(o.left), not(o.right));
+    return new Not(child);
+  }
+
+  /**
+   * Run the plan on a window of rows, for a page of results that does not need the rest
+   *
+   * @param table the table to search
+   * @param index the table's index, or null to scan the columns
+   * @param scanner the pool to scan on, or null to scan on the calling thread
+   * @param from the first row to match
+   * @param to the end (exclusive) of the rows to match
+   * @return a bitset of the matching rows in the window
+   */
+  public BitSet execute(Table table, TableIndex index, ParallelScan scanner, int from, int to) {
+    return execute(new Execution(table, index, scanner, from, to), null);
+  }
+
+  private static BitSet allRows(Execution ex) {
+    BitSet ret = new BitSet(ex.to);
+    ret.set(ex.from, ex.to);
+    return ret;
+  }
+
+  /** Set the rows of some postings in row order that are in the window */
+  private static void setAll(Execution ex, Postings postings, BitSet ret) {
+    if (ex.rowCount() != ex.table.rowCount()) postings = postings.within(ex.from, ex.to);
+    ex.read(postings.size(), true);
+    postings.forEach(ret::set);
+  }
+
+  /** Set the rows of some postings in order of value, like a range's, that are in the window */
+  private static void setAllInWindow(Execution ex, Postings postings, BitSet ret) {
+    ex.read(postings.size(), true);
+    if (ex.rowCount() == ex.table.rowCount()) {
+      postings.forEach(ret::set);
+      return;
+    }
+    postings.forEach(
+        r -> {
+          if (ex.inWindow(r)) ret.set(r);
+        });
+  }
+
+  /** Keep the candidates passing a test of single rows */
+  private static BitSet filter(Execution ex, BitSet candidates, IntPredicate match) {
+    ex.read(candidates);
+    BitSet ret = new BitSet();
+    for (int r = candidates.nextSetBit(0); r >= 0; r = candidates.nextSetBit(r + 1)) {
+      if (match.test(r)) ret.set(r);
+    }
+    return ret;
+  }
+
+  /** Keep the rows of some postings that are also candidates */
+  private static BitSet filter(Execution ex, BitSet candidates, Postings postings) {
+    ex.read(postings.size(), true);
+    BitSet ret = new BitSet();
+    for (int i = 0; i < postings.size(); i++) {
+      int r = postings.get(i);
+      if (candidates.get(r)) ret.set(r);
+    }
+    return ret;
+  }
+
+  /** Estimate how many cells of a column equal a value */
+  private static long estimateEqual(Execution ex, int column, String value) {
+    if (ex.index != null) return ex.index.column(column).lookup(value).size();
+    Table table = ex.table;
+    Column c = table.column(column);
+    if (c instanceof StringColumn strings) {
+      // the dictionary tells exactly whether the value occurs at all
+      if (strings.code(value) < 0) return 0;
+      return table.rowCount() / strings.cardinality();
+    }
+    return (long) (table.rowCount() * DEFAULT_SELECTIVITY);
+  }
+
+  /** Rows whose cell in one column equals a value */
+  static final class Equals extends QueryPlan {
+    final int column;
+    final String value;
+
+    Equals(int column, String value) {
+      this.column = column;
+      this.value = value;
+    }
+
+    /**
+     * @return the rows the index holds for the value, or null without an index
+     */
+    private Postings postings(Execution ex) {
+      if (ex.index == null) return null;
+      return ex.lookup(this, () -> ex.index.column(column).lookup(value));
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      Postings postings = postings(ex);
+      if (candidates == null) {
+        if (postings == null) return ex.scan(scan(ex));
+        BitSet ret = new BitSet(ex.to);
+        setAll(ex, postings, ret);
+        return ret;
+      }
+      if (postings != null && postings.size() <= candidates.cardinality())
+        return filter(ex, candidates, postings);
+      return filter(ex, candidates, ex.table.column(column).equalTo(value));
+    }
+
+    @Override
+    ParallelScan.RangeScan scan(Execution ex) {
+      if (ex.index != null) return null;
+      Column c = ex.table.column(column);
+      return (from, to, words) -> c.findEqual(value, from, to, words);
+    }
+
+    @Override
+    int scannedColumn() {
+      return column;
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      Postings postings = postings(ex);
+      if (postings != null) return postings.size();
+      return estimateEqual(ex, column, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Equals other && column == other.column && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * column + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "eq(" + column + ", " + value + ")";
+    }
+  }
+
+  /** Rows whose cell in one column is a number in an interval */
+  static final class InRange extends QueryPlan {
+    final int column;
+    final NumericRange range;
+
+    InRange(int column, NumericRange range) {
+      this.column = column;
+      this.range = range;
+    }
+
+    /**
+     * @return the rows the index holds for the range, or null without an index that answers ranges
+     */
+    private Postings postings(Execution ex) {
+      if (ex.index == null) return null;
+      return ex.lookup(this, () -> ex.index.column(column).range(range));
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      Postings postings = postings(ex);
+      if (candidates == null) {
+        if (postings == null) return ex.scan(scan(ex));
+        BitSet ret = new BitSet(ex.to);
+        setAllInWindow(ex, postings, ret);
+        return ret;
+      }
+      if (postings != null && postings.size() <= candidates.cardinality())
+        return filter(ex, candidates, postings);
+      return filter(ex, candidates, ex.table.column(column).inRange(range));
+    }
+
+    @Override
+    ParallelScan.RangeScan scan(Execution ex) {
+      if (postings(ex) != null) return null;
+      Column c = ex.table.column(column);
+      return (from, to, words) -> c.findInRange(range, from, to, words);
+    }
+
+    @Override
+    int scannedColumn() {
+      return column;
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      Postings postings = postings(ex);
+      if (postings != null) return postings.size();
+      return (long) (ex.table.rowCount() * RANGE_SELECTIVITY);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof InRange other && column == other.column && range.equals(other.range);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * column + range.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "in(" + column + ", " + range + ")";
+    }
+  }
+
+  /**
+   * Rows whose cell in one column equals, contains, starts with or is within an edit distance of
+   * some text, possibly ignoring case and accents
+   */
+  static final class Matches extends QueryPlan {
+    final int column;
+    final TextMatch match;
+
+    Matches(int column, TextMatch match) {
+      this.column = column;
+      this.match = match;
+    }
+
+    /**
+     * @return the rows of every matching value, or null without an index that answers text matches
+     */
+    private Postings[] postings(Execution ex) {
+      if (ex.index == null) return null;
+      return ex.lookup(this, () -> ex.index.column(column).text(match));
+    }
+
+    private static long size(Postings[] postings) {
+      long ret = 0;
+      for (Postings p : postings) ret += p.size();
+      return ret;
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      Postings[] postings = postings(ex);
+      if (candidates == null) {
+        if (postings == null) return ex.scan(scan(ex));
+        BitSet ret = new BitSet(ex.to);
+        for (Postings p : postings) setAll(ex, p, ret);
+        return ret;
+      }
+      if (postings != null && size(postings) <= candidates.cardinality()) {
+        BitSet ret = new BitSet();
+        for (Postings p : postings) ret.or(filter(ex, candidates, p));
+        return ret;
+      }
+      return filter(ex, candidates, ex.table.column(column).matches(match));
+    }
+
+    @Override
+    ParallelScan.RangeScan scan(Execution ex) {
+      if (postings(ex) != null) return null;
+      IntPredicate test = ex.table.column(column).matches(match);
+      return (from, to, words) -> {
+        for (int r = from; r < to; r++) {
+          if (test.test(r)) words[r >>> 6] |= 1L << r;
+        }
+      };
+    }
+
+    @Override
+    int scannedColumn() {
+      return column;
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      // only look up the rows when the index finds them without testing every value
+      if (ex.index != null && ex.index.column(column).indexes(match)) {
+        Postings[] postings = postings(ex);
+        if (postings != null) return size(postings);
+      }
+      return (long) (ex.table.rowCount() * DEFAULT_SELECTIVITY);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Matches other && column == other.column && match.equals(other.match);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * column + match.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      String name =
+          switch (match.kind()) {
+            case EQUALS -> "eq";
+            case CONTAINS -> "contains";
+            case PREFIX -> "prefix";
+            case FUZZY -> "fuzzy";
+          };
+      String distance = match.kind() == TextMatch.Kind.FUZZY ? ", " + match.distance() : "";
+      return (match.insensitive() ? "i" : "")
+          + name
+          + "("
+          + column
+          + ", "
+          + match.text()
+          + distance
+          + ")";
+    }
+  }
+
+  /** Rows where any cell equals a value */
+  static final class AnyEquals extends QueryPlan {
+    final String value;
+
+    AnyEquals(String value) {
+      this.value = value;
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      Table table = ex.table;
+      if (candidates == null) {
+        if (ex.index == null) return ex.scan(scan(ex));
+        // the index holds as many rows of the value as the estimate counts
+        if (ex.profile != null) ex.read(estimate(ex), true);
+        BitSet ret = new BitSet(ex.to);
+        ex.index.findAny(value, ex.from, ex.to, ret::set);
+        return ret;
+      }
+      long estimate = ex.index == null ? 0 : estimate(ex);
+      if (ex.index != null && estimate <= candidates.cardinality()) {
+        ex.read(estimate, true);
+        BitSet ret = new BitSet();
+        ex.index.findAny(
+            value,
+            r -> {
+              if (candidates.get(r)) ret.set(r);
+            });
+        return ret;
+      }
+      IntPredicate[] matches = new IntPredicate[table.columnCount()];
+      for (int i = 0; i < matches.length; i++) matches[i] = table.column(i).equalTo(value);
+      return filter(
+          ex,
+          candidates,
+          r -> {
+            for (IntPredicate match : matches) {
+              if (match.test(r)) return true;
+            }
+            return false;
+          });
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      return ex.lookup(
+          this,
+          () -> {
+            long ret = 0;
+            for (int i = 0; i < ex.table.columnCount(); i++) ret += estimateEqual(ex, i, value);
+            return Math.min(ret, ex.table.rowCount());
+          });
+    }
+
+    @Override
+    ParallelScan.RangeScan scan(Execution ex) {
+      if (ex.index != null) return null;
+      Table table = ex.table;
+      return (from, to, words) -> {
+        for (int i = 0; i < table.columnCount(); i++)
+          table.column(i).findEqual(value, from, to, words);
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof AnyEquals other && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "any(" + value + ")";
+    }
+  }
+
+  /** No rows, for a query naming a column the table does not have */
+  static final class Nothing extends QueryPlan {
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      return new BitSet();
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return "none";
+    }
+  }
+
+  /** Rows matching both children */
+  static final class And extends QueryPlan {
+    final QueryPlan left;
+    final QueryPlan right;
+
+    And(QueryPlan left, QueryPlan right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      QueryPlan first = left;
+      QueryPlan second = right;
+      if (right.estimate(ex) < left.estimate(ex)) {
+        first = right;
+        second = left;
+      }
+      BitSet ret = first.execute(ex, candidates);
+      if (ret.isEmpty()) return ret;
+      return second.execute(ex, ret);
+    }
+
+    @Override
+    void leaves(Consumer<QueryPlan> leaves) {
+      left.leaves(leaves);
+      right.leaves(leaves);
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      return Math.min(left.estimate(ex), right.estimate(ex));
+    }
+
+    @Override
+    public String toString() {
+      return "and(" + left + ", " + right + ")";
+    }
+  }
+
+  /** Rows matching either child */
+  static final class Or extends QueryPlan {
+    final QueryPlan left;
+    final QueryPlan right;
+
+    Or(QueryPlan left, QueryPlan right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      BitSet ret = left.execute(ex, candidates);
+      // every candidate already matched
+      int all = candidates == null ? ex.rowCount() : candidates.cardinality();
+      if (ret.cardinality() == all) return ret;
+      ret.or(right.execute(ex, candidates));
+      return ret;
+    }
+
+    @Override
+    void leaves(Consumer<QueryPlan> leaves) {
+      left.leaves(leaves);
+      right.leaves(leaves);
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      return Math.min(ex.table.rowCount(), left.estimate(ex) + right.estimate(ex));
+    }
+
+    @Override
+    public String toString() {
+      return "or(" + left + ", " + right + ")";
+    }
+  }
+
+  /** Rows not matching the child */
+  static final class Not extends QueryPlan {
+    final QueryPlan child;
+
+    Not(QueryPlan child) {
+      this.child = child;
+    }
+
+    @Override
+    BitSet match(Execution ex, BitSet candidates) {
+      BitSet ret = candidates == null ? allRows(ex) : (BitSet) candidates.clone();
+      ret.andNot(child.execute(ex, candidates));
+      return ret;
+    }
+
+    @Override
+    void leaves(Consumer<QueryPlan> leaves) {
+      child.leaves(leaves);
+    }
+
+    @Override
+    long estimate(Execution ex) {
+      return ex.table.rowCount() - child.estimate(ex);
+    }
+
+    @Override
+    public String toString() {
+      return "not(" + child + ")";
+    }
+  }
+}
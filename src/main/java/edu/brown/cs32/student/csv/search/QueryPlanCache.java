@@ -0,0 +1,79 @@
+package edu.brown.cs32.student.csv.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import edu.brown.cs32.student.csv.exception.NoHeaderException;
+
+/**
+ * A bounded, least-recently-used cache of compiled query plans, keyed by the query text, whether it
+ * ignores case and the version of the dataset it was compiled for. A new dataset version never
+ * reuses an old plan, whose column indices may not match its header; the old plans age out of the
+ * cache on their own.
+ */
+public class QueryPlanCache {
+  private record Key(String query, boolean insensitive, long version) {}
+
+  private final Cache<Key, QueryPlan> cache;
+
+  /**
+   * Constructor
+   *
+   * @param cacheSize how many plans to keep at most
+   */
+  public QueryPlanCache(int cacheSize) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            // How many entries maximum in the cache?
+            .maximumSize(cacheSize)
+            // Keep statistical info around for profiling purposes
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Get the plan of a query, compiling and caching it on a miss. Queries that fail to compile are
+   * not cached.
+   *
+   * @param query the input query string
+   * @param version the version of the dataset `search` searches
+   * @param search the search to compile the query with
+   * @return the plan
+   * @throws NoHeaderException if a column is named but the table has no header
+   * @throws IllegalArgumentException for invalid query format
+   */
+  public QueryPlan get(String query, long version, Search search)
+      throws NoHeaderException, IllegalArgumentException {
+    return get(query, false, version, search);
+  }
+
+  /**
+   * Get the plan of a query, compiling and caching it on a miss
+   *
+   * @param query the input query string
+   * @param insensitive true to compare text ignoring case and accents
+   * @param version the version of the dataset `search` searches
+   * @param search the search to compile the query with
+   * @return the plan
+   * @throws NoHeaderException if a column is named but the table has no header
+   * @throws IllegalArgumentException for invalid query format
+   */
+  public QueryPlan get(String query, boolean insensitive, long version, Search search)
+      throws NoHeaderException, IllegalArgumentException {
+    Key key = new Key(query, insensitive, version);
+    QueryPlan plan = cache.getIfPresent(key);
+    if (plan == null) {
+      // two requests may both compile the same query; either plan is correct
+      plan = search.compile(query, insensitive);
+      cache.put(key, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * @return hit and miss counts of the cache
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
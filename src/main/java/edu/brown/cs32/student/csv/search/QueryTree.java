@@ -1,8 +1,8 @@
 package edu.brown.cs32.student.csv.search;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 
 /** Parse the query string into a Tree to handle comprehensive and, or, not and basic query */
@@ -11,7 +11,7 @@ public class QueryTree {
   Deque<String> inDeque;
 
   public QueryTree(List<String> input) {
-    inDeque = new LinkedList<>();
+    inDeque = new ArrayDeque<>();
     for (String s : input) {
       inDeque.addLast(s);
     }
@@ -21,8 +21,11 @@ public class QueryTree {
    * Build the query tree using pre-order traversal
    *
    * @return the root node
+   * @throws IllegalArgumentException if the query ends before an operator has all its operands
    */
   private Node Build() {
+    if (inDeque.isEmpty())
+      throw new IllegalArgumentException("Query ended before an and, or or not had its operands");
     String s = inDeque.removeFirst();
     Node curr = new Node();
     curr.children = new ArrayList<>();
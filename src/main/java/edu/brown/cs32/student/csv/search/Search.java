@@ -1,18 +1,55 @@
 package edu.brown.cs32.student.csv.search;
 
 import edu.brown.cs32.student.csv.exception.NoHeaderException;
+import edu.brown.cs32.student.csv.table.ColumnType;
+import edu.brown.cs32.student.csv.table.Folding;
+import edu.brown.cs32.student.csv.table.NumericRange;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+import edu.brown.cs32.student.csv.table.TextMatch;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /** Search the result in the CSV data given a query */
 public class Search {
+  /** fewest rows a page of results runs the plan on at once */
+  private static final int MIN_PAGE_WINDOW = 1 << 16;
+
+  /**
+   * A page of search results
+   *
+   * @param rows the matching rows, in row order
+   * @param next the row the next page starts from, or -1 if this page ends the results
+   */
+  public record Page(List<List<String>> rows, int next) {}
+
   private boolean hasHead;
-  private List<String> header;
-  private List<List<String>> data;
+  private Table table;
+  /** equality index of the table, or null to scan the columns */
+  private TableIndex index;
+  /** pool for scans the index cannot answer, or null to scan on the calling thread */
+  private ParallelScan scanner;
   /** Constructor */
+  public Search(Table table) {
+    this(table, null);
+  }
+
+  /** Constructor answering basic queries from an index of the table */
+  public Search(Table table, TableIndex index) {
+    this(table, index, null);
+  }
+
+  /** Constructor scanning the columns the index cannot answer on a pool */
+  public Search(Table table, TableIndex index, ParallelScan scanner) {
+    this.hasHead = table.hasHeader();
+    this.table = table;
+    this.index = index;
+    this.scanner = scanner;
+  }
+
+  /** Constructor over rows of text */
   public Search(boolean hasHead, List<String> header, List<List<String>> data) {
-    this.hasHead = hasHead;
-    this.header = header;
-    this.data = data;
+    this(Table.of(hasHead ? header : List.of(), data));
   }
   /**
    * Search the result in the CSV data given a query
@@ -22,105 +59,370 @@ public class Search {
    */
   public List<List<String>> search(String query)
       throws NoHeaderException, IllegalArgumentException {
+    if (table.rowCount() == 0) return new ArrayList<>();
+    return search(compile(query));
+  }
+
+  /**
+   * Search the result in the CSV data with a compiled query
+   *
+   * @param plan a plan compiled for this table's header
+   * @return a list of searched row data
+   */
+  public List<List<String>> search(QueryPlan plan) {
     List<List<String>> ret = new ArrayList<>();
-    if (data.isEmpty()) return ret;
-    List<String> tmp = List.of(query.split(",|\\(|\\)"));
-    QueryTree qt = new QueryTree(tmp);
-    Set<Integer> resSet = null;
-    try {
-      resSet = searchHelper(qt.root);
-    } catch (NoHeaderException e) {
-      throw e;
-    } catch (IllegalArgumentException e) {
-      throw e;
+    BitSet rows = searchRows(plan);
+    for (int n = rows.nextSetBit(0); n >= 0; n = rows.nextSetBit(n + 1)) ret.add(table.row(n));
+    return ret;
+  }
+
+  /**
+   * Search with many compiled queries at once
+   *
+   * @param plans plans compiled for this table's header
+   * @return the searched rows of every plan, in the order of the plans
+   */
+  public List<List<List<String>>> search(List<QueryPlan> plans) {
+    List<List<List<String>>> ret = new ArrayList<>();
+    for (BitSet rows : searchRows(plans)) {
+      List<List<String>> found = new ArrayList<>();
+      for (int n = rows.nextSetBit(0); n >= 0; n = rows.nextSetBit(n + 1)) found.add(table.row(n));
+      ret.add(found);
     }
-    List<Integer> resArray = new ArrayList<>();
-    for (int n : resSet) resArray.add(n);
-    Collections.sort(resArray);
-    for (int n : resArray) ret.add(data.get(n));
     return ret;
   }
+
   /**
-   * Search recursively in query tree
+   * Search for one page of results. The plan runs on a window of rows at a time, sized from its
+   * estimate to hold the page and doubled while it does not, and stops at the window that fills the
+   * page, so a broad query with a small page never matches the whole table.
    *
-   * @param root the query tree node
-   * @return a integer set indicating the searched result
+   * @param plan a plan compiled for this table's header
+   * @param from the first row to search, 0 or the `next` of an earlier page
+   * @param offset how many matching rows to skip
+   * @param limit how many matching rows to return at most, at least 1
+   * @return the page
+   */
+  public Page searchPage(QueryPlan plan, int from, int offset, int limit) {
+    List<List<String>> rows = new ArrayList<>();
+    int next = searchPage(plan, from, offset, limit, r -> rows.add(table.row(r)));
+    return new Page(rows, next);
+  }
+
+  /**
+   * Search for one page of results like `searchPage`, handing each row over as it is found instead
+   * of collecting them
+   *
+   * @param plan a plan compiled for this table's header
+   * @param from the first row to search, 0 or the `next` of an earlier page
+   * @param offset how many matching rows to skip
+   * @param limit how many matching rows to return at most, at least 1
+   * @param rows receives the index of every row of the page, in row order
+   * @return the row the next page starts from, or -1 if this page ends the results
+   */
+  public int searchPage(QueryPlan plan, int from, int offset, int limit, IntConsumer rows) {
+    int rowCount = table.rowCount();
+    long needed = Math.min(rowCount, (long) offset + limit);
+    // the windows share the run's index lookups, so the plan looks each value up once
+    Execution ex = new Execution(table, index, scanner);
+    long estimate = Math.max(1, plan.estimate(ex));
+    long window = Math.max(MIN_PAGE_WINDOW, (long) (2.0 * (rowCount - from) * needed / estimate));
+    int skipped = 0;
+    int found = 0;
+    for (int start = from; start < rowCount; window *= 2) {
+      int end = (int) Math.min(rowCount, start + window);
+      BitSet matches = plan.execute(ex.window(start, end), null);
+      for (int r = matches.nextSetBit(start); r >= 0; r = matches.nextSetBit(r + 1)) {
+        if (skipped < offset) {
+          skipped++;
+          continue;
+        }
+        rows.accept(r);
+        if (++found == limit) return r + 1 < rowCount ? r + 1 : -1;
+      }
+      start = end;
+    }
+    return -1;
+  }
+
+  /**
+   * Find the rows matching a query
+   *
+   * @param query the input query string
+   * @return a bitset over row indices, iterated in row order by `nextSetBit`
    * @throws NoHeaderException for errors when creator handles the row data
    * @throws IllegalArgumentException for invalid query format
    */
-  private Set<Integer> searchHelper(Node root) throws NoHeaderException, IllegalArgumentException {
-    if (!root.isOp) return searchOnce(root.queryName);
-    else {
-      Set<Integer> ret = new HashSet<>();
-      if (root.Op.equals("not")) {
-        Set<Integer> tmp = searchHelper(root.children.get(0));
-        for (int i = 0; i < data.size(); i++) {
-          if (!tmp.contains(i)) ret.add(i);
-        }
-      } else if (root.Op.equals("and")) {
-        Set<Integer> tmp1 = searchHelper(root.children.get(0));
-        Set<Integer> tmp2 = searchHelper(root.children.get(1));
-        for (int n : tmp1) {
-          if (tmp2.contains(n)) ret.add(n);
-        }
-      } else if (root.Op.equals("or")) {
-        Set<Integer> tmp1 = searchHelper(root.children.get(0));
-        Set<Integer> tmp2 = searchHelper(root.children.get(1));
-        ret = tmp1;
-        for (int n : tmp2) {
-          ret.add(n);
-        }
+  public BitSet searchRows(String query) throws NoHeaderException, IllegalArgumentException {
+    return searchRows(compile(query));
+  }
+
+  /**
+   * Find the rows matching a compiled query
+   *
+   * @param plan a plan compiled for this table's header
+   * @return a bitset over row indices, iterated in row order by `nextSetBit`
+   */
+  public BitSet searchRows(QueryPlan plan) {
+    return plan.execute(table, index, scanner);
+  }
+
+  /**
+   * Find the rows matching many compiled queries at once. The basic queries of all of them that the
+   * index cannot answer are scanned together first, in one pass over their columns (see
+   * `SharedScan`), and each plan then runs on the rows of that pass.
+   *
+   * @param plans plans compiled for this table's header
+   * @return a bitset of the matching rows of every plan, in the order of the plans
+   */
+  public List<BitSet> searchRows(List<QueryPlan> plans) {
+    Execution scan = new Execution(table, index, scanner);
+    Execution ex = scan.sharing(SharedScan.scan(scan, plans));
+    List<BitSet> ret = new ArrayList<>(plans.size());
+    for (QueryPlan plan : plans) ret.add(plan.execute(ex, null));
+    return ret;
+  }
+
+  /**
+   * Run a compiled query, recording what each node of the plan does. The nodes run as they do in
+   * `searchRows`; they only also record their reads.
+   *
+   * @param plan a plan compiled for this table's header
+   * @return the run of every node
+   */
+  public Profile explain(QueryPlan plan) {
+    Profile ret = new Profile();
+    plan.execute(new Execution(table, index, scanner, 0, table.rowCount(), ret), null);
+    return ret;
+  }
+
+  /**
+   * Aggregate the rows matching a compiled query
+   *
+   * @param aggregation aggregates compiled for this table's header
+   * @param filter a plan compiled for this table's header, or null to aggregate every row
+   * @return one map per group of the aggregates' values, see `Aggregation`
+   */
+  public List<Map<String, Object>> aggregate(Aggregation aggregation, QueryPlan filter) {
+    Execution ex = new Execution(table, index, scanner);
+    return aggregation.run(ex, filter == null ? null : filter.execute(ex, null));
+  }
+
+  /**
+   * Compile aggregates for this table. Each aggregate is `count`, or `distinct;column;name|idx`,
+   * `sum;column;name|idx`, `min;column;name|idx`, `max;column;name|idx` or `avg;column;name|idx`,
+   * separated by commas; the rows can be grouped by the value of a column, given as
+   * `column;name|idx`.
+   *
+   * @param aggregates the aggregates
+   * @param groupBy the column to group by, or null for a single group of every row
+   * @return the compiled aggregates
+   * @throws NoHeaderException if a column is named but the table has no header
+   * @throws IllegalArgumentException for an invalid aggregate, or a column the table does not have
+   */
+  public Aggregation compileAggregation(String aggregates, String groupBy)
+      throws NoHeaderException, IllegalArgumentException {
+    List<Aggregation.Aggregate> list = new ArrayList<>();
+    for (String aggregate : aggregates.split(",")) {
+      List<String> tmp = List.of(aggregate.split(";"));
+      Aggregation.Function function;
+      try {
+        function = Aggregation.Function.valueOf(tmp.get(0).toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            "Unknown aggregate "
+                + tmp.get(0)
+                + ", should be count, distinct, sum, min, max or avg");
       }
-      return ret;
+      int args = function == Aggregation.Function.COUNT ? 1 : 3;
+      if (tmp.size() != args)
+        throw new IllegalArgumentException(
+            "Wrong aggregate format! Received "
+                + tmp.size()
+                + " args for "
+                + tmp.get(0)
+                + ", but should be "
+                + args);
+      if (args == 1) {
+        list.add(new Aggregation.Aggregate(function, -1, "count"));
+        continue;
+      }
+      int colIdx = existingColumn(tmp.get(1), tmp.get(2));
+      String label = function.name().toLowerCase(Locale.ROOT) + "(" + tmp.get(1) + ")";
+      list.add(new Aggregation.Aggregate(function, colIdx, label));
     }
+    if (groupBy == null) return new Aggregation(list, -1, null);
+    List<String> tmp = List.of(groupBy.split(";"));
+    if (tmp.size() != 2)
+      throw new IllegalArgumentException(
+          "Wrong group format! Received " + tmp.size() + " args, but should be 2");
+    return new Aggregation(list, existingColumn(tmp.get(0), tmp.get(1)), tmp.get(0));
+  }
+
+  /**
+   * Compile a query into a plan for this table: the query is parsed once, and column names and
+   * indices are resolved against the header. The plan depends on this table's column types as well
+   * as its header, so it can be reused for this table but not for another dataset version (see
+   * `QueryPlan`).
+   *
+   * @param query the input query string
+   * @return the plan
+   * @throws NoHeaderException if a column is named but the table has no header
+   * @throws IllegalArgumentException for invalid query format
+   */
+  public QueryPlan compile(String query) throws NoHeaderException, IllegalArgumentException {
+    return compile(query, false);
   }
 
   /**
-   * Search a basic query in the data
+   * Compile a query into a plan for this table
+   *
+   * @param query the input query string
+   * @param insensitive true to compare text ignoring case and accents (see `Folding`)
+   * @return the plan
+   * @throws NoHeaderException if a column is named but the table has no header
+   * @throws IllegalArgumentException for invalid query format
+   */
+  public QueryPlan compile(String query, boolean insensitive)
+      throws NoHeaderException, IllegalArgumentException {
+    List<String> tmp = List.of(query.split(",|\\(|\\)"));
+    QueryTree qt = new QueryTree(tmp);
+    return compile(qt.root, insensitive);
+  }
+
+  /**
+   * Compile recursively in query tree. The plans combine their children's results as bitsets over
+   * the row indices, so `and`, `or` and `not` are word-wide operations.
+   *
+   * @param root the query tree node
+   * @param insensitive true to compare text ignoring case and accents
+   * @return the plan of the subtree
+   * @throws NoHeaderException for errors when creator handles the row data
+   * @throws IllegalArgumentException for invalid query format
+   */
+  private QueryPlan compile(Node root, boolean insensitive)
+      throws NoHeaderException, IllegalArgumentException {
+    if (!root.isOp) return compileOnce(root.queryName, insensitive);
+    QueryPlan left = compile(root.children.get(0), insensitive);
+    if (root.Op.equals("not")) return QueryPlan.not(left);
+    QueryPlan right = compile(root.children.get(1), insensitive);
+    if (root.Op.equals("and")) return new QueryPlan.And(left, right);
+    return new QueryPlan.Or(left, right);
+  }
+
+  /**
+   * Compile a basic query: `value;column;name|idx` or `value` for equality,
+   * `gt;bound;column;name|idx` or `lt;bound;column;name|idx` for a strict numeric comparison,
+   * `between;low;high;column;name|idx` for a numeric range including its bounds,
+   * `contains;text;column;name|idx` or `prefix;text;column;name|idx` for part of a cell, and
+   * `fuzzy;text;distance;column;name|idx` for the cells within an edit distance of the text
    *
    * @param query the basic query
-   * @return a integer set indicating the searched result
+   * @param insensitive true to compare text ignoring case and accents
+   * @return the plan matching it
    * @throws NoHeaderException for errors when creator handles the row data
    * @throws IllegalArgumentException for invalid query format
    */
-  private Set<Integer> searchOnce(String query) throws NoHeaderException, IllegalArgumentException {
-    Set<Integer> ret = new HashSet<>();
+  private QueryPlan compileOnce(String query, boolean insensitive)
+      throws NoHeaderException, IllegalArgumentException {
     List<String> tmp = List.of(query.split(";"));
+    String op = tmp.get(0);
+    if (tmp.size() == 4 && (op.equals("gt") || op.equals("lt"))) {
+      NumericRange range =
+          op.equals("gt")
+              ? NumericRange.greaterThan(tmp.get(1))
+              : NumericRange.lessThan(tmp.get(1));
+      return compileRange(range, tmp.get(2), tmp.get(3));
+    }
+    if (tmp.size() == 4 && (op.equals("contains") || op.equals("prefix"))) {
+      TextMatch match =
+          op.equals("contains") ? TextMatch.contains(tmp.get(1)) : TextMatch.prefix(tmp.get(1));
+      if (insensitive) match = match.ignoringCase();
+      int colIdx = column(tmp.get(2), tmp.get(3));
+      if (colIdx < 0 || colIdx >= table.columnCount()) return new QueryPlan.Nothing();
+      return new QueryPlan.Matches(colIdx, match);
+    }
+    if (tmp.size() == 5 && op.equals("fuzzy")) {
+      TextMatch match = TextMatch.fuzzy(tmp.get(1), distance(tmp.get(2)));
+      if (insensitive) match = match.ignoringCase();
+      int colIdx = column(tmp.get(3), tmp.get(4));
+      if (colIdx < 0 || colIdx >= table.columnCount()) return new QueryPlan.Nothing();
+      return new QueryPlan.Matches(colIdx, match);
+    }
+    if (tmp.size() == 5 && op.equals("between"))
+      return compileRange(NumericRange.between(tmp.get(1), tmp.get(2)), tmp.get(3), tmp.get(4));
     if (tmp.size() != 1 && tmp.size() != 3)
       throw new IllegalArgumentException(
           "Wrong query format! Received " + tmp.size() + " args, but should be 1 or 3");
     String target = tmp.get(0);
     boolean hasConstraint = (tmp.size() == 3);
-    if (hasConstraint) {
-      boolean byIdx = tmp.get(2).equals("idx");
-      if (!byIdx && !hasHead)
-        throw new NoHeaderException(
-            "Cannot use column name as identifier when the CSV has no header");
-      int colIdx = -1;
-      if (byIdx) colIdx = Integer.parseInt(tmp.get(1));
-      else {
-        String colName = tmp.get(1);
-        for (int i = 0; i < header.size(); i++) {
-          if (colName.equals(header.get(i))) {
-            colIdx = i;
-            break;
-          }
-        }
-      }
-      if (colIdx < 0 || colIdx >= data.get(0).size()) return ret;
-      for (int i = 0; i < data.size(); i++) {
-        if (data.get(i).get(colIdx).equals(target)) ret.add(i);
-      }
-    } else {
-      for (int i = 0; i < data.size(); i++) {
-        for (String s : data.get(i)) {
-          if (s.equals(target)) {
-            ret.add(i);
-            break;
-          }
-        }
+    if (!hasConstraint && !insensitive) return new QueryPlan.AnyEquals(target);
+    if (!hasConstraint) {
+      QueryPlan ret = new QueryPlan.Nothing();
+      for (int i = table.columnCount() - 1; i >= 0; i--) {
+        QueryPlan equals = equalsIgnoringCase(i, target);
+        ret = ret instanceof QueryPlan.Nothing ? equals : new QueryPlan.Or(equals, ret);
       }
+      return ret;
+    }
+    int colIdx = column(tmp.get(1), tmp.get(2));
+    if (colIdx < 0 || colIdx >= table.columnCount()) return new QueryPlan.Nothing();
+    if (insensitive) return equalsIgnoringCase(colIdx, target);
+    return new QueryPlan.Equals(colIdx, target);
+  }
+
+  /**
+   * Match the cells of a column equal to a value ignoring case and accents. Text columns compare
+   * the folded form of each distinct value; numbers fold to themselves, so a numeric column only
+   * has to hold the folded value.
+   */
+  private QueryPlan equalsIgnoringCase(int column, String value) {
+    if (table.column(column).type() == ColumnType.STRING)
+      return new QueryPlan.Matches(column, TextMatch.equal(value).ignoringCase());
+    return new QueryPlan.Equals(column, Folding.fold(value));
+  }
+
+  private static int distance(String distance) {
+    try {
+      return Integer.parseInt(distance);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Fuzzy distance " + distance + " is not a number");
     }
+  }
+
+  private QueryPlan compileRange(NumericRange range, String column, String identifier)
+      throws NoHeaderException {
+    int colIdx = column(column, identifier);
+    if (colIdx < 0 || colIdx >= table.columnCount()) return new QueryPlan.Nothing();
+    return new QueryPlan.InRange(colIdx, range);
+  }
+
+  /**
+   * Resolve a column that must be in the table
+   *
+   * @throws IllegalArgumentException if the table has no such column
+   */
+  private int existingColumn(String column, String identifier) throws NoHeaderException {
+    int ret = column(column, identifier);
+    if (ret < 0 || ret >= table.columnCount())
+      throw new IllegalArgumentException("Column " + column + " is not in the table");
     return ret;
   }
+
+  /**
+   * Resolve the column of a basic query
+   *
+   * @param column the column's name or index
+   * @param identifier "idx" if `column` is an index, otherwise it is a name
+   * @return the column index, possibly out of range
+   * @throws NoHeaderException if a column is named but the table has no header
+   */
+  private int column(String column, String identifier) throws NoHeaderException {
+    boolean byIdx = identifier.equals("idx");
+    if (!byIdx && !hasHead)
+      throw new NoHeaderException(
+          "Cannot use column name as identifier when the CSV has no header");
+    if (byIdx) return Integer.parseInt(column);
+    return table.columnIndex(column);
+  }
 }
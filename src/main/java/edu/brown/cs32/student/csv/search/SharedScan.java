@@ -0,0 +1,74 @@
+package edu.brown.cs32.student.csv.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The scans of many plans run as one pass over the rows. Basic queries that appear in several plans
+ * are scanned once, and the scans are grouped by column and run a block of rows at a time, so every
+ * query on a column tests a block while it is still in cache and each column is read from memory
+ * once for the whole batch. The plans then run as usual, taking the rows of their scanned basic
+ * queries from the pass (see `Execution.shared`).
+ */
+final class SharedScan {
+  /** rows a block holds: small enough that a block of a column stays in the L1 cache */
+  private static final int BLOCK_ROWS = 1 << 12;
+
+  private SharedScan() {}
+
+  /**
+   * Scan the basic queries of some plans that the index cannot answer
+   *
+   * @param ex the table, its index and the pool to scan on
+   * @param plans the plans
+   * @return the rows of every basic query that scans, by node
+   */
+  static Map<QueryPlan, BitSet> scan(Execution ex, List<QueryPlan> plans) {
+    // basic queries are equal if they match the same rows, so equal queries are scanned once
+    Map<QueryPlan, Integer> ids = new HashMap<>();
+    List<QueryPlan> distinct = new ArrayList<>();
+    List<ParallelScan.RangeScan> scans = new ArrayList<>();
+    Map<QueryPlan, Integer> leaves = new IdentityHashMap<>();
+    for (QueryPlan plan : plans) {
+      plan.leaves(
+          leaf -> {
+            Integer id = ids.get(leaf);
+            if (id == null) {
+              ParallelScan.RangeScan scan = leaf.scan(ex);
+              if (scan == null) return;
+              id = distinct.size();
+              ids.put(leaf, id);
+              distinct.add(leaf);
+              scans.add(scan);
+            }
+            leaves.put(leaf, id);
+          });
+    }
+
+    Integer[] order = new Integer[distinct.size()];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, Comparator.comparingInt(i -> distinct.get(i).scannedColumn()));
+    long[][] words = new long[order.length][(ex.to + 63) >>> 6];
+    ex.map(
+        (from, to) -> {
+          for (int start = from; start < to; start += BLOCK_ROWS) {
+            int end = Math.min(to, start + BLOCK_ROWS);
+            for (int i : order) scans.get(i).scan(start, end, words[i]);
+          }
+          return null;
+        });
+
+    BitSet[] rows = new BitSet[words.length];
+    for (int i = 0; i < rows.length; i++) rows[i] = BitSet.valueOf(words[i]);
+    Map<QueryPlan, BitSet> ret = new IdentityHashMap<>();
+    for (Map.Entry<QueryPlan, Integer> leaf : leaves.entrySet())
+      ret.put(leaf.getKey(), rows[leaf.getValue()]);
+    return ret;
+  }
+}
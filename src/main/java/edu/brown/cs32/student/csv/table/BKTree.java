@@ -0,0 +1,150 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+
+/**
+ * A BK-tree of the distinct values of a text column, for finding the values within an edit distance
+ * of some text. Every value hangs under its parent by their distance (see `EditDistance`). By the
+ * triangle inequality, the values within k of a text can only sit under a value at distance d from
+ * it on edges d - k to d + k, so a lookup only visits a small part of the tree. The nodes are the
+ * values' codes; each node's children are kept back to back, in order of edge, in int arrays rather
+ * than objects.
+ */
+class BKTree {
+  private final Dictionary values;
+  /** node i's children are children[offsets[i], offsets[i + 1]), by ascending edge */
+  private final int[] offsets;
+
+  private final int[] children;
+  /** the distance of each child in `children` from its parent */
+  private final int[] edges;
+
+  /**
+   * Constructor
+   *
+   * @param values the distinct values to index, a column's or their folded forms
+   */
+  BKTree(Dictionary values) {
+    this.values = values;
+    int n = values.size();
+    int[] parent = new int[n];
+    int[] edge = new int[n];
+    build(parent, edge);
+    // then lay out the children of every node together, sorted by edge
+    offsets = new int[n + 1];
+    for (int code = 1; code < n; code++) offsets[parent[code] + 1]++;
+    for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+    children = new int[Math.max(0, n - 1)];
+    edges = new int[children.length];
+    long[] sorted = new long[children.length];
+    int[] next = offsets.clone();
+    for (int code = 1; code < n; code++) sorted[next[parent[code]]++] = key(edge[code], code);
+    for (int i = 0; i < n; i++) Arrays.sort(sorted, offsets[i], offsets[i + 1]);
+    for (int i = 0; i < sorted.length; i++) {
+      edges[i] = (int) (sorted[i] >>> 32);
+      children[i] = (int) sorted[i];
+    }
+  }
+
+  /**
+   * Hang every value under its parent. Rather than inserting the values one by one, each subtree is
+   * built at once: the distance of all its values from its root is computed in one pass, with the
+   * root's bit masks reused throughout, and the values are split by that distance into the subtrees
+   * of the root's children, each rooted at its first value. This makes the same tree as inserting
+   * the values in code order, reading the values in order instead of down random paths.
+   *
+   * @param parent receives each value's parent
+   * @param edge receives each value's distance from its parent
+   */
+  private void build(int[] parent, int[] edge) {
+    int n = values.size();
+    int[] codes = new int[n];
+    for (int i = 0; i < n; i++) codes[i] = i;
+    int[] sorted = new int[n];
+    int[] dist = new int[n];
+    int[] counts = new int[16];
+    EditDistance distance = new EditDistance();
+    // subtrees left to build, as ranges of `codes` whose first value is the root
+    int[] stack = new int[64];
+    int top = 0;
+    if (n > 1) {
+      stack[top++] = 0;
+      stack[top++] = n;
+    }
+    while (top > 0) {
+      int to = stack[--top];
+      int from = stack[--top];
+      String root = values.value(codes[from]);
+      int far = 0;
+      for (int i = from + 1; i < to; i++) {
+        dist[i] = distance.distance(root, values.value(codes[i]));
+        far = Math.max(far, dist[i]);
+      }
+      // a stable counting sort by distance keeps every subtree in code order
+      if (counts.length < far + 2) counts = new int[far + 2];
+      Arrays.fill(counts, 0, far + 2, 0);
+      for (int i = from + 1; i < to; i++) counts[dist[i] + 1]++;
+      for (int d = 0; d <= far; d++) counts[d + 1] += counts[d];
+      for (int i = from + 1; i < to; i++) {
+        int at = from + 1 + counts[dist[i]]++;
+        sorted[at] = codes[i];
+      }
+      System.arraycopy(sorted, from + 1, codes, from + 1, to - from - 1);
+      // counts[d] now ends the values at distance d
+      int start = from + 1;
+      for (int d = 1; d <= far; d++) {
+        int end = from + 1 + counts[d];
+        if (end == start) continue;
+        parent[codes[start]] = codes[from];
+        edge[codes[start]] = d;
+        if (end - start > 1) {
+          if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+          stack[top++] = start;
+          stack[top++] = end;
+        }
+        start = end;
+      }
+    }
+  }
+
+  private static long key(int high, int low) {
+    return ((long) high << 32) | low;
+  }
+
+  /**
+   * Find the values within a distance of some text
+   *
+   * @param text the text, folded if the values are
+   * @param max the largest distance to match
+   * @return the codes of the matching values, ascending
+   */
+  int[] find(String text, int max) {
+    if (values.size() == 0) return new int[0];
+    EditDistance distance = new EditDistance();
+    int[] stack = new int[64];
+    int top = 0;
+    stack[top++] = 0;
+    int[] ret = new int[16];
+    int found = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      int from = offsets[node];
+      int to = offsets[node + 1];
+      // past the farthest child's edge plus max, neither the node nor any child can match
+      int bound = (to > from ? edges[to - 1] : 0) + max;
+      int d = distance.distance(text, values.value(node), bound);
+      if (d <= max) {
+        if (found == ret.length) ret = Arrays.copyOf(ret, found * 2);
+        ret[found++] = node;
+      }
+      for (int i = from; i < to && edges[i] <= d + max; i++) {
+        if (edges[i] < d - max) continue;
+        if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+        stack[top++] = children[i];
+      }
+    }
+    ret = Arrays.copyOf(ret, found);
+    Arrays.sort(ret);
+    return ret;
+  }
+}
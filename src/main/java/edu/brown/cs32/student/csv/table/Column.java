@@ -0,0 +1,113 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/** One column of a `Table` */
+public interface Column {
+  /**
+   * @return the number of rows
+   */
+  int size();
+
+  /**
+   * @return how the column stores its cells
+   */
+  ColumnType type();
+
+  /**
+   * Cell getter
+   *
+   * @param row the row index
+   * @return the cell's text
+   */
+  String get(int row);
+
+  /**
+   * Find the rows whose cell equals a value
+   *
+   * @param value the text to match
+   * @param rows receives every matching row index, in ascending order
+   */
+  default void findEqual(String value, IntConsumer rows) {
+    findEqual(value, 0, size(), rows);
+  }
+
+  /**
+   * Find the rows of a range whose cell equals a value, so disjoint ranges can be scanned in
+   * parallel
+   *
+   * @param value the text to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param rows receives every matching row index, in ascending order
+   */
+  void findEqual(String value, int from, int to, IntConsumer rows);
+
+  /**
+   * Find the rows of a range whose cell equals a value, setting their bits in a bitmap of 64 rows
+   * per word. The bits are ORed in, so disjoint ranges can be scanned into one bitmap at once.
+   *
+   * @param value the text to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param words the bitmap, with a word for every 64 rows up to `to`
+   */
+  default void findEqual(String value, int from, int to, long[] words) {
+    findEqual(value, from, to, r -> words[r >>> 6] |= 1L << r);
+  }
+
+  /**
+   * Make a test of single rows against a value, for checking a few rows without a scan
+   *
+   * @param value the text to match
+   * @return a predicate that is true for the rows whose cell equals the value
+   */
+  IntPredicate equalTo(String value);
+
+  /**
+   * Find the rows of a range whose cell is a number in an interval
+   *
+   * @param range the interval to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param rows receives every matching row index, in ascending order
+   */
+  default void findInRange(NumericRange range, int from, int to, IntConsumer rows) {
+    IntPredicate match = inRange(range);
+    for (int i = from; i < to; i++) {
+      if (match.test(i)) rows.accept(i);
+    }
+  }
+
+  /**
+   * Find the rows of a range whose cell is a number in an interval, setting their bits in a bitmap
+   * of 64 rows per word, ORed in like `findEqual`
+   *
+   * @param range the interval to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param words the bitmap, with a word for every 64 rows up to `to`
+   */
+  default void findInRange(NumericRange range, int from, int to, long[] words) {
+    findInRange(range, from, to, r -> words[r >>> 6] |= 1L << r);
+  }
+
+  /**
+   * Make a test of single rows against an interval
+   *
+   * @param range the interval to match
+   * @return a predicate that is true for the rows whose cell is a number in the interval
+   */
+  IntPredicate inRange(NumericRange range);
+
+  /**
+   * Make a test of single rows against part of a value
+   *
+   * @param match the text to match
+   * @return a predicate that is true for the rows whose cell matches the text
+   */
+  default IntPredicate matches(TextMatch match) {
+    return row -> match.test(get(row));
+  }
+}
@@ -0,0 +1,232 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+
+/**
+ * Build one column of a `TableBuilder`. Unless the column's type is declared, it starts as `INT`
+ * and is widened to `LONG`, `DOUBLE` or `STRING` as soon as a cell does not fit, converting the
+ * cells stored so far. Numbers are only accepted in a form that renders back to exactly the same
+ * text (see `Decimals`), so widening never changes a cell.
+ */
+class ColumnBuilder {
+  private final boolean declared;
+  private ColumnType type;
+  private final Decimals parser = Decimals.parser();
+  /** whether the last cell offered to a numeric column parsed as a number */
+  private boolean parsed;
+
+  private int size;
+
+  // only the arrays of the current type are allocated
+  private int[] ints;
+  private long[] longs;
+  private double[] doubles;
+  private byte[] scales;
+  private int[] codes;
+  private Dictionary dict;
+
+  /**
+   * Constructor
+   *
+   * @param declared the column's type, or null to infer it from the cells
+   */
+  ColumnBuilder(ColumnType declared) {
+    this.declared = declared != null;
+    this.type = declared == null ? ColumnType.INT : declared;
+    allocate(type, 1024);
+  }
+
+  ColumnType type() {
+    return type;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void allocate(ColumnType t, int capacity) {
+    switch (t) {
+      case INT -> ints = new int[capacity];
+      case LONG -> longs = new long[capacity];
+      case DOUBLE -> {
+        doubles = new double[capacity];
+        scales = new byte[capacity];
+      }
+      case STRING -> {
+        codes = new int[capacity];
+        dict = new Dictionary();
+      }
+    }
+  }
+
+  private int capacity() {
+    return switch (type) {
+      case INT -> ints.length;
+      case LONG -> longs.length;
+      case DOUBLE -> doubles.length;
+      case STRING -> codes.length;
+    };
+  }
+
+  private void ensureCapacity(int n) {
+    if (n <= capacity()) return;
+    int c = Math.max(n, capacity() * 2);
+    switch (type) {
+      case INT -> ints = Arrays.copyOf(ints, c);
+      case LONG -> longs = Arrays.copyOf(longs, c);
+      case DOUBLE -> {
+        doubles = Arrays.copyOf(doubles, c);
+        scales = Arrays.copyOf(scales, c);
+      }
+      case STRING -> codes = Arrays.copyOf(codes, c);
+    }
+  }
+
+  /**
+   * Add the next cell from buf[start, end)
+   *
+   * @throws IllegalArgumentException if the column's type is declared and the cell does not fit it
+   */
+  void add(char[] buf, int start, int end) {
+    ensureCapacity(size + 1);
+    while (!tryAdd(buf, start, end)) {
+      if (declared) {
+        throw new IllegalArgumentException(
+            "\""
+                + new String(buf, start, end - start)
+                + "\" is not a valid "
+                + type.name().toLowerCase());
+      }
+      widen(neededType());
+    }
+  }
+
+  /** Store a cell if it fits the current type, leaving the parsed number in `parser` */
+  private boolean tryAdd(char[] buf, int start, int end) {
+    if (type != ColumnType.STRING) parsed = parser.parse(buf, start, end);
+    switch (type) {
+      case INT -> {
+        if (!parsed || parser.scale != 0) return false;
+        if (parser.unscaled != (int) parser.unscaled) return false;
+        ints[size++] = (int) parser.unscaled;
+      }
+      case LONG -> {
+        if (!parsed || parser.scale != 0) return false;
+        longs[size++] = parser.unscaled;
+      }
+      case DOUBLE -> {
+        if (!parsed || !Decimals.fitsDouble(parser.unscaled)) return false;
+        doubles[size] = Decimals.toDouble(parser.unscaled, parser.scale);
+        scales[size++] = (byte) parser.scale;
+      }
+      case STRING -> codes[size++] = dict.intern(buf, start, end);
+    }
+    return true;
+  }
+
+  /**
+   * @return the narrowest type that holds both the stored cells and the cell that just failed
+   */
+  private ColumnType neededType() {
+    if (!parsed) return ColumnType.STRING;
+    ColumnType cell;
+    if (parser.scale > 0) cell = ColumnType.DOUBLE;
+    else if (parser.unscaled == (int) parser.unscaled) cell = ColumnType.INT;
+    else cell = ColumnType.LONG;
+    ColumnType ret = type.join(cell);
+    if (ret == ColumnType.DOUBLE && !Decimals.fitsDouble(parser.unscaled)) ret = ColumnType.STRING;
+    return ret;
+  }
+
+  /**
+   * Convert the stored cells to a wider type
+   *
+   * @param target the new type, wider than the current one
+   */
+  private void widen(ColumnType target) {
+    if (target == ColumnType.DOUBLE && type == ColumnType.LONG) {
+      for (int r = 0; r < size; r++) {
+        if (!Decimals.fitsDouble(longs[r])) {
+          target = ColumnType.STRING;
+          break;
+        }
+      }
+    }
+    ColumnType from = type;
+    int capacity = capacity();
+    allocate(target, capacity);
+    for (int r = 0; r < size; r++) {
+      switch (target) {
+        case LONG -> longs[r] = ints[r];
+        case DOUBLE -> doubles[r] = from == ColumnType.INT ? ints[r] : longs[r];
+        case STRING -> codes[r] = dict.intern(text(from, r));
+        default -> throw new IllegalStateException("cannot widen to " + target);
+      }
+    }
+    type = target;
+    if (target != ColumnType.INT) ints = null;
+    if (target != ColumnType.LONG) longs = null;
+    if (target != ColumnType.DOUBLE) doubles = null;
+    if (target != ColumnType.DOUBLE) scales = null;
+  }
+
+  /**
+   * @return the original text of a stored cell, while the column has type `t`
+   */
+  private String text(ColumnType t, int row) {
+    return switch (t) {
+      case INT -> Integer.toString(ints[row]);
+      case LONG -> Long.toString(longs[row]);
+      case DOUBLE -> Decimals.render(Decimals.unscaled(doubles[row], scales[row]), scales[row]);
+      case STRING -> dict.value(codes[row]);
+    };
+  }
+
+  /**
+   * Add all cells of another builder after the cells of this one, widening this column if needed
+   *
+   * @param other the builder of the same column of a later chunk
+   */
+  void append(ColumnBuilder other) {
+    ColumnType target = type.join(other.type);
+    if (target != type && !declared) widen(target);
+    ensureCapacity(size + other.size);
+    if (other.type != type) {
+      // rare: chunks inferred different types, so add the other's cells one by one as text
+      for (int r = 0; r < other.size; r++) {
+        char[] chars = other.text(other.type, r).toCharArray();
+        add(chars, 0, chars.length);
+      }
+      return;
+    }
+    int n = other.size;
+    switch (type) {
+      case INT -> System.arraycopy(other.ints, 0, ints, size, n);
+      case LONG -> System.arraycopy(other.longs, 0, longs, size, n);
+      case DOUBLE -> {
+        System.arraycopy(other.doubles, 0, doubles, size, n);
+        System.arraycopy(other.scales, 0, scales, size, n);
+      }
+      case STRING -> {
+        // translate the other builder's codes into this builder's dictionary
+        int[] remap = new int[other.dict.size()];
+        for (int code = 0; code < remap.length; code++)
+          remap[code] = dict.intern(other.dict.value(code));
+        for (int r = 0; r < n; r++) codes[size + r] = remap[other.codes[r]];
+      }
+    }
+    size += n;
+  }
+
+  /**
+   * @return the finished column
+   */
+  Column build() {
+    return switch (type) {
+      case INT -> new IntColumn(Arrays.copyOf(ints, size));
+      case LONG -> new LongColumn(Arrays.copyOf(longs, size));
+      case DOUBLE -> new DoubleColumn(Arrays.copyOf(doubles, size), Arrays.copyOf(scales, size));
+      case STRING -> new StringColumn(Arrays.copyOf(codes, size), size, dict);
+    };
+  }
+}
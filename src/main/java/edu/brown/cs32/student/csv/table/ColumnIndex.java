@@ -0,0 +1,60 @@
+package edu.brown.cs32.student.csv.table;
+
+/** An index over one column, answering equality lookups without scanning the column */
+public interface ColumnIndex {
+  /**
+   * Find the rows whose cell equals a value
+   *
+   * @param value the text to match
+   * @return the matching rows, in ascending order
+   */
+  Postings lookup(String value);
+
+  /**
+   * Find the rows whose cell is a number in an interval
+   *
+   * @param range the interval to match
+   * @return the matching rows, in order of value rather than row, or null if the index cannot
+   *     answer ranges
+   */
+  Postings range(NumericRange range);
+
+  /**
+   * Find the rows whose cell equals, contains, starts with or is within an edit distance of some
+   * text
+   *
+   * @param match the text to match
+   * @return the rows of every matching value, or null if the index cannot answer text matches
+   */
+  Postings[] text(TextMatch match);
+
+  /**
+   * @param match the text to match
+   * @return true if `text` finds the matching values from an index of them, rather than by testing
+   *     every distinct value
+   */
+  boolean indexes(TextMatch match);
+
+  /**
+   * Build the index of a column
+   *
+   * @param column the column
+   * @return an index of the right kind for the column's type
+   */
+  static ColumnIndex of(Column column) {
+    return of(column, false);
+  }
+
+  /**
+   * Build the index of a column
+   *
+   * @param column the column
+   * @param textIndex whether to also index a text column's values for substring, prefix and fuzzy
+   *     matches
+   * @return an index of the right kind for the column's type
+   */
+  static ColumnIndex of(Column column, boolean textIndex) {
+    if (column instanceof StringColumn strings) return new DictionaryIndex(strings, textIndex);
+    return new SortedIndex((NumericColumn) column);
+  }
+}
@@ -0,0 +1,17 @@
+package edu.brown.cs32.student.csv.table;
+
+/** How a column stores its cells, from the narrowest to the most general */
+public enum ColumnType {
+  INT,
+  LONG,
+  DOUBLE,
+  STRING;
+
+  /**
+   * @return the narrowest type that can hold the values of both types
+   */
+  ColumnType join(ColumnType other) {
+    ColumnType ret = compareTo(other) >= 0 ? this : other;
+    return ret;
+  }
+}
@@ -0,0 +1,137 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * Parse and render the plain decimal numbers that numeric columns store. Only text that renders
+ * back to exactly the same characters is accepted: an optional minus sign, no leading zeros, no
+ * exponent, no "-0", and a fraction of at least one digit if there is a point. Trailing zeros in
+ * the fraction are kept through the scale. `parseDouble` is also used to read doubles straight from
+ * a parse buffer.
+ */
+public final class Decimals {
+  /**
+   * largest number of digits whose unscaled value is exact in a double, and renders back exactly
+   */
+  static final int MAX_DECIMAL_DIGITS = 15;
+  /** largest number of digits that always fits a long */
+  static final int MAX_INTEGER_DIGITS = 18;
+
+  static final double[] POW10 = new double[MAX_DECIMAL_DIGITS + 1];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+  }
+
+  /** the digits and point position of the last parsed number */
+  long unscaled;
+
+  int scale;
+
+  private Decimals() {}
+
+  /**
+   * @return a fresh parser; its `unscaled` and `scale` hold the result of the last `parse`
+   */
+  static Decimals parser() {
+    return new Decimals();
+  }
+
+  /**
+   * Parse buf[start, end) as a plain decimal
+   *
+   * @return false if the text is not a number this class can render back exactly
+   */
+  boolean parse(char[] buf, int start, int end) {
+    int i = start;
+    boolean negative = i < end && buf[i] == '-';
+    if (negative) i++;
+    if (i == end || buf[i] < '0' || buf[i] > '9') return false;
+    // no leading zeros, except for a lone zero before the point
+    if (buf[i] == '0' && i + 1 < end && buf[i + 1] != '.') return false;
+    long value = 0;
+    int digits = 0;
+    int point = -1;
+    for (; i < end; i++) {
+      char c = buf[i];
+      if (c >= '0' && c <= '9') {
+        if (++digits > MAX_INTEGER_DIGITS) return false;
+        value = value * 10 + (c - '0');
+      } else if (c == '.' && point < 0) {
+        point = i;
+      } else {
+        return false;
+      }
+    }
+    int fraction = point < 0 ? 0 : end - point - 1;
+    if (point >= 0 && (fraction == 0 || digits > MAX_DECIMAL_DIGITS)) return false;
+    if (negative && value == 0) return false;
+    unscaled = negative ? -value : value;
+    scale = fraction;
+    return true;
+  }
+
+  /**
+   * Parse buf[start, end) as a double, exactly as `Double.parseDouble` would. Plain decimals of up
+   * to 15 digits are converted without making a `String`.
+   *
+   * @throws NumberFormatException if the text is not a number
+   */
+  public static double parseDouble(char[] buf, int start, int end) {
+    Decimals parser = new Decimals();
+    if (parser.parse(buf, start, end) && fitsDouble(parser.unscaled))
+      return toDouble(parser.unscaled, parser.scale);
+    return Double.parseDouble(new String(buf, start, end - start));
+  }
+
+  /**
+   * Parse a String as a plain decimal
+   *
+   * @return false if the text is not a number this class can render back exactly
+   */
+  boolean parse(String s) {
+    return parse(s.toCharArray(), 0, s.length());
+  }
+
+  /**
+   * @return the double closest to unscaled / 10^scale
+   */
+  static double toDouble(long unscaled, int scale) {
+    // both operands are exact doubles, so the quotient is correctly rounded
+    return unscaled / POW10[scale];
+  }
+
+  /**
+   * @return true if a parsed value can be held by a `DoubleColumn` and rendered back exactly
+   */
+  static boolean fitsDouble(long unscaled) {
+    return Math.abs(unscaled) < 1_000_000_000_000_000L;
+  }
+
+  /**
+   * Recover the unscaled digits of a value stored as a double
+   *
+   * @return the unscaled value, exact for values accepted by `fitsDouble`
+   */
+  static long unscaled(double value, int scale) {
+    return Math.round(value * POW10[scale]);
+  }
+
+  /**
+   * @return the text of unscaled / 10^scale, with exactly `scale` fraction digits
+   */
+  static String render(long unscaled, int scale) {
+    if (scale == 0) return Long.toString(unscaled);
+    String digits = Long.toString(Math.abs(unscaled));
+    StringBuilder sb = new StringBuilder(digits.length() + scale + 2);
+    if (unscaled < 0) sb.append('-');
+    if (digits.length() <= scale) {
+      sb.append("0.");
+      for (int k = digits.length(); k < scale; k++) sb.append('0');
+      sb.append(digits);
+    } else {
+      sb.append(digits, 0, digits.length() - scale).append('.');
+      sb.append(digits, digits.length() - scale, digits.length());
+    }
+    return sb.toString();
+  }
+}
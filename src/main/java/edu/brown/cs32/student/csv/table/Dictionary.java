@@ -0,0 +1,114 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+
+/**
+ * Map between the distinct values of a column and dense int codes. Values can be looked up by a
+ * range of characters, so a `String` is only made the first time a value is seen.
+ */
+class Dictionary {
+  private String[] values = new String[16];
+  private int size;
+  /** open-addressing hash table holding code + 1, 0 for an empty slot */
+  private int[] slots = new int[32];
+
+  /**
+   * @return the number of distinct values
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the value with the given code
+   */
+  String value(int code) {
+    return values[code];
+  }
+
+  /**
+   * @return the values in code order
+   */
+  String[] values() {
+    return Arrays.copyOf(values, size);
+  }
+
+  /**
+   * Look up a value
+   *
+   * @return its code, or -1 if absent
+   */
+  int find(String s) {
+    int mask = slots.length - 1;
+    for (int i = spread(s.hashCode()) & mask; ; i = (i + 1) & mask) {
+      int slot = slots[i];
+      if (slot == 0) return -1;
+      if (values[slot - 1].equals(s)) return slot - 1;
+    }
+  }
+
+  /**
+   * Look up a value, adding it if absent
+   *
+   * @return its code
+   */
+  int intern(String s) {
+    int mask = slots.length - 1;
+    int i = spread(s.hashCode()) & mask;
+    for (; ; i = (i + 1) & mask) {
+      int slot = slots[i];
+      if (slot == 0) break;
+      if (values[slot - 1].equals(s)) return slot - 1;
+    }
+    return add(s, i);
+  }
+
+  /**
+   * Look up the value held in buf[start, end), adding it if absent
+   *
+   * @return its code
+   */
+  int intern(char[] buf, int start, int end) {
+    int h = 0;
+    for (int k = start; k < end; k++) h = 31 * h + buf[k];
+    int mask = slots.length - 1;
+    int i = spread(h) & mask;
+    for (; ; i = (i + 1) & mask) {
+      int slot = slots[i];
+      if (slot == 0) break;
+      if (matches(values[slot - 1], buf, start, end)) return slot - 1;
+    }
+    return add(new String(buf, start, end - start), i);
+  }
+
+  private static boolean matches(String s, char[] buf, int start, int end) {
+    if (s.length() != end - start) return false;
+    for (int k = start; k < end; k++) {
+      if (s.charAt(k - start) != buf[k]) return false;
+    }
+    return true;
+  }
+
+  private int add(String s, int slot) {
+    if (size == values.length) values = Arrays.copyOf(values, size * 2);
+    values[size] = s;
+    slots[slot] = ++size;
+    // keep the table at most half full
+    if (size * 2 > slots.length) rehash();
+    return size - 1;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    int mask = slots.length - 1;
+    for (int code = 0; code < size; code++) {
+      int i = spread(values[code].hashCode()) & mask;
+      while (slots[i] != 0) i = (i + 1) & mask;
+      slots[i] = code + 1;
+    }
+  }
+
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+}
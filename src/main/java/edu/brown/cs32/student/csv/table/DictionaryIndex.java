@@ -0,0 +1,105 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+
+/**
+ * Index of a text column: the rows of every dictionary code, back to back in one array. Built with
+ * a counting sort over the codes, so each code's rows stay in ascending order. Substring, prefix
+ * and fuzzy matches are made on the distinct values, through an n-gram index and a BK-tree of them
+ * if they were built.
+ */
+class DictionaryIndex implements ColumnIndex {
+  private final StringColumn column;
+  /** code c's rows are rows[offsets[c], offsets[c + 1]) */
+  private final int[] offsets;
+
+  private final int[] rows;
+  /** indexes of the values and of their folded forms for text matches, or null to test them all */
+  private final NGramIndex text;
+
+  private final NGramIndex foldedText;
+  /** trees of the values and of their folded forms for fuzzy matches, or null to test them all */
+  private final BKTree fuzzy;
+
+  private final BKTree foldedFuzzy;
+
+  DictionaryIndex(StringColumn column, boolean textIndex) {
+    this.column = column;
+    // fold the values while loading, so no query has to
+    FoldedDictionary folded = column.folded();
+    this.text = textIndex ? new NGramIndex(column.dictionary()) : null;
+    this.foldedText = textIndex ? new NGramIndex(folded.values) : null;
+    this.fuzzy = textIndex ? new BKTree(column.dictionary()) : null;
+    this.foldedFuzzy = textIndex ? new BKTree(folded.values) : null;
+    int size = column.size();
+    offsets = new int[column.cardinality() + 1];
+    for (int r = 0; r < size; r++) offsets[column.code(r) + 1]++;
+    for (int c = 0; c < column.cardinality(); c++) offsets[c + 1] += offsets[c];
+    rows = new int[size];
+    int[] next = offsets.clone();
+    for (int r = 0; r < size; r++) rows[next[column.code(r)]++] = r;
+  }
+
+  @Override
+  public Postings lookup(String value) {
+    int code = column.code(value);
+    if (code < 0) return Postings.EMPTY;
+    return new Postings(rows, offsets[code], offsets[code + 1]);
+  }
+
+  @Override
+  public Postings range(NumericRange range) {
+    // codes are in order of first appearance, not of value
+    return null;
+  }
+
+  @Override
+  public Postings[] text(TextMatch match) {
+    int[] codes;
+    if (!match.insensitive()) {
+      codes = find(match, column.dictionary(), text, fuzzy);
+    } else {
+      FoldedDictionary folded = column.folded();
+      codes = folded.codes(find(match, folded.values, foldedText, foldedFuzzy));
+    }
+    Postings[] ret = new Postings[codes.length];
+    for (int i = 0; i < codes.length; i++)
+      ret[i] = new Postings(rows, offsets[codes[i]], offsets[codes[i] + 1]);
+    return ret;
+  }
+
+  @Override
+  public boolean indexes(TextMatch match) {
+    return switch (match.kind()) {
+      case EQUALS -> true;
+      case FUZZY -> fuzzy != null;
+      default -> text != null;
+    };
+  }
+
+  /**
+   * Find the values that match
+   *
+   * @param values the values, or their folded forms
+   * @param text the n-gram index of `values`, or null
+   * @param fuzzy the BK-tree of `values`, or null
+   * @return the codes of the matching values in `values`
+   */
+  private static int[] find(TextMatch match, Dictionary values, NGramIndex text, BKTree fuzzy) {
+    if (match.kind() == TextMatch.Kind.EQUALS) {
+      int code = values.find(match.text());
+      return code < 0 ? new int[0] : new int[] {code};
+    }
+    if (match.kind() == TextMatch.Kind.FUZZY) {
+      if (fuzzy != null) return fuzzy.find(match.text(), match.distance());
+    } else if (text != null) {
+      return text.find(match);
+    }
+    int[] ret = new int[values.size()];
+    int n = 0;
+    for (int code = 0; code < ret.length; code++) {
+      if (match.test(values.value(code))) ret[n++] = code;
+    }
+    return Arrays.copyOf(ret, n);
+  }
+}
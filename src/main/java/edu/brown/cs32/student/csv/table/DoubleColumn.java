@@ -0,0 +1,84 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A column of decimal numbers, stored in a double[]. Each cell also keeps its number of fraction
+ * digits, so "1.50" renders back as "1.50" and not as "1.5".
+ */
+public class DoubleColumn implements NumericColumn {
+  private final double[] values;
+  private final byte[] scales;
+
+  DoubleColumn(double[] values, byte[] scales) {
+    this.values = values;
+    this.scales = scales;
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.DOUBLE;
+  }
+
+  @Override
+  public String get(int row) {
+    int scale = scales[row];
+    return Decimals.render(Decimals.unscaled(values[row], scale), scale);
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, IntConsumer rows) {
+    // equal text means an equal value written with the same number of fraction digits
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || !Decimals.fitsDouble(parser.unscaled)) return;
+    double target = Decimals.toDouble(parser.unscaled, parser.scale);
+    byte scale = (byte) parser.scale;
+    for (int i = from; i < to; i++) {
+      if (values[i] == target && scales[i] == scale) rows.accept(i);
+    }
+  }
+
+  @Override
+  public IntPredicate equalTo(String value) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || !Decimals.fitsDouble(parser.unscaled)) return row -> false;
+    double target = Decimals.toDouble(parser.unscaled, parser.scale);
+    byte scale = (byte) parser.scale;
+    return row -> values[row] == target && scales[row] == scale;
+  }
+
+  @Override
+  public void findInRange(NumericRange range, int from, int to, long[] words) {
+    ScanKernel.INSTANCE.range(values, range, from, to, words);
+  }
+
+  @Override
+  public IntPredicate inRange(NumericRange range) {
+    return row -> range.contains(values[row]);
+  }
+
+  @Override
+  public double getDouble(int row) {
+    return values[row];
+  }
+
+  /**
+   * @return the backing array, for `TableSnapshot`
+   */
+  double[] values() {
+    return values;
+  }
+
+  /**
+   * @return the number of fraction digits of every cell, for `TableSnapshot`
+   */
+  byte[] scales() {
+    return scales;
+  }
+}
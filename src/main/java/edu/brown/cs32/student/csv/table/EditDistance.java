@@ -0,0 +1,114 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * Levenshtein distance: the fewest single-char insertions, deletions and substitutions turning one
+ * text into another. It is a metric, which `BKTree` relies on to skip values. A text of up to 64
+ * chars is compared with Myers' bit-parallel algorithm, which keeps a whole column of the distance
+ * table in two words and advances it one char of the other text at a time; longer texts fill the
+ * table row by row. An instance keeps the bit masks of the last text it saw, since a search
+ * compares one text with many others, so it is not safe to share between threads; `local` gives
+ * each thread its own.
+ */
+final class EditDistance {
+  private static final ThreadLocal<EditDistance> LOCAL = ThreadLocal.withInitial(EditDistance::new);
+
+  /** the text the masks are for */
+  private String pattern;
+  /** bit i of masks[c] is set if char i of the pattern is c, for ASCII chars */
+  private final long[] masks = new long[128];
+
+  /**
+   * @return this thread's instance
+   */
+  static EditDistance local() {
+    return LOCAL.get();
+  }
+
+  /**
+   * @return the distance between the texts
+   */
+  int distance(String a, String b) {
+    return distance(a, b, Math.max(a.length(), b.length()));
+  }
+
+  /**
+   * Compute the distance, giving up early when it must exceed a bound
+   *
+   * @param a the text compared with many others, for the masks to be reused
+   * @param max the bound
+   * @return the distance between the texts, or any value over max if it is more than max
+   */
+  int distance(String a, String b, int max) {
+    int n = a.length();
+    if (Math.abs(n - b.length()) > max) return max + 1;
+    if (n == 0) return b.length();
+    if (n > 64) return table(a, b, max);
+    if (a != pattern) {
+      if (pattern != null) {
+        for (int i = 0; i < pattern.length(); i++) {
+          char c = pattern.charAt(i);
+          if (c < 128) masks[c] = 0;
+        }
+      }
+      pattern = a;
+      for (int i = 0; i < n; i++) {
+        char c = a.charAt(i);
+        if (c < 128) masks[c] |= 1L << i;
+      }
+    }
+    // vertical deltas of the column as positive and negative bits, and its last cell
+    long pv = -1;
+    long mv = 0;
+    int score = n;
+    long last = 1L << (n - 1);
+    for (int j = 0; j < b.length(); j++) {
+      long eq = mask(b.charAt(j));
+      long xv = eq | mv;
+      long xh = (((eq & pv) + pv) ^ pv) | eq;
+      long ph = mv | ~(xh | pv);
+      long mh = pv & xh;
+      if ((ph & last) != 0) score++;
+      else if ((mh & last) != 0) score--;
+      // the first row of the table grows by one per char
+      ph = (ph << 1) | 1;
+      mh <<= 1;
+      pv = mh | ~(xv | ph);
+      mv = ph & xv;
+    }
+    return score;
+  }
+
+  private long mask(char c) {
+    if (c < 128) return masks[c];
+    long ret = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      if (pattern.charAt(i) == c) ret |= 1L << i;
+    }
+    return ret;
+  }
+
+  /** The distance by the full table, two rows at a time */
+  private static int table(String a, String b, int max) {
+    int m = b.length();
+    int[] prev = new int[m + 1];
+    int[] cur = new int[m + 1];
+    for (int j = 0; j <= m; j++) prev[j] = j;
+    for (int i = 1; i <= a.length(); i++) {
+      char c = a.charAt(i - 1);
+      cur[0] = i;
+      int best = i;
+      for (int j = 1; j <= m; j++) {
+        int d = prev[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+        d = Math.min(d, Math.min(prev[j], cur[j - 1]) + 1);
+        cur[j] = d;
+        best = Math.min(best, d);
+      }
+      // every later row is at least the smallest cell of this one
+      if (best > max) return max + 1;
+      int[] t = prev;
+      prev = cur;
+      cur = t;
+    }
+    return prev[m];
+  }
+}
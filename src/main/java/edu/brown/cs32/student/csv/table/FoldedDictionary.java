@@ -0,0 +1,46 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * The folded forms (see `Folding`) of a text column's distinct values, computed once per value.
+ * Values that fold to the same form share a folded code, and each folded code keeps the codes of
+ * the values that fold to it.
+ */
+class FoldedDictionary {
+  /** the distinct folded forms */
+  final Dictionary values = new Dictionary();
+  /** the folded code of every code */
+  final int[] foldedCodes;
+  /** folded code f is the fold of the codes codes[offsets[f], offsets[f + 1]), ascending */
+  private final int[] offsets;
+
+  private final int[] codes;
+
+  FoldedDictionary(Dictionary dict) {
+    int n = dict.size();
+    foldedCodes = new int[n];
+    for (int code = 0; code < n; code++)
+      foldedCodes[code] = values.intern(Folding.fold(dict.value(code)));
+    offsets = new int[values.size() + 1];
+    for (int code = 0; code < n; code++) offsets[foldedCodes[code] + 1]++;
+    for (int f = 0; f < values.size(); f++) offsets[f + 1] += offsets[f];
+    codes = new int[n];
+    int[] next = offsets.clone();
+    for (int code = 0; code < n; code++) codes[next[foldedCodes[code]]++] = code;
+  }
+
+  /**
+   * @param folded folded codes
+   * @return the codes of the values folding to any of them
+   */
+  int[] codes(int[] folded) {
+    int n = 0;
+    for (int f : folded) n += offsets[f + 1] - offsets[f];
+    int[] ret = new int[n];
+    int i = 0;
+    for (int f : folded) {
+      System.arraycopy(codes, offsets[f], ret, i, offsets[f + 1] - offsets[f]);
+      i += offsets[f + 1] - offsets[f];
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,33 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * The case- and accent-insensitive form of text: accents are stripped by decomposing the text and
+ * dropping its combining marks, then case is folded by upper- then lower-casing, which also maps
+ * e.g. "ß" to "ss". Numbers as a numeric column renders them are left unchanged.
+ */
+public final class Folding {
+  private Folding() {}
+
+  /**
+   * @param s the text
+   * @return its folded form
+   */
+  public static String fold(String s) {
+    boolean ascii = true;
+    boolean lower = true;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        ascii = false;
+        break;
+      }
+      if (c >= 'A' && c <= 'Z') lower = false;
+    }
+    if (ascii) return lower ? s : s.toLowerCase(Locale.ROOT);
+    String stripped = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    return stripped.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,95 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/** A column of whole numbers that fit an int, stored in an int[] */
+public class IntColumn implements NumericColumn {
+  private final int[] values;
+
+  IntColumn(int[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.INT;
+  }
+
+  @Override
+  public String get(int row) {
+    return Integer.toString(values[row]);
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, IntConsumer rows) {
+    // a cell's text equals the value exactly when their canonical numbers are equal
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0 || parser.unscaled != (int) parser.unscaled)
+      return;
+    int target = (int) parser.unscaled;
+    for (int i = from; i < to; i++) {
+      if (values[i] == target) rows.accept(i);
+    }
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, long[] words) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0 || parser.unscaled != (int) parser.unscaled)
+      return;
+    ScanKernel.INSTANCE.equal(values, (int) parser.unscaled, from, to, words);
+  }
+
+  @Override
+  public IntPredicate equalTo(String value) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0 || parser.unscaled != (int) parser.unscaled)
+      return row -> false;
+    int target = (int) parser.unscaled;
+    return row -> values[row] == target;
+  }
+
+  @Override
+  public void findInRange(NumericRange range, int from, int to, long[] words) {
+    // no int lies outside the int bounds, so the bounds are clamped to them
+    long low = Math.max(range.lowLong, Integer.MIN_VALUE);
+    long high = Math.min(range.highLong, Integer.MAX_VALUE);
+    if (low > high) return;
+    ScanKernel.INSTANCE.range(values, (int) low, (int) high, from, to, words);
+  }
+
+  @Override
+  public IntPredicate inRange(NumericRange range) {
+    long low = range.lowLong;
+    long high = range.highLong;
+    return row -> values[row] >= low && values[row] <= high;
+  }
+
+  /**
+   * Value getter
+   *
+   * @param row the row index
+   * @return the cell's value
+   */
+  public int getInt(int row) {
+    return values[row];
+  }
+
+  @Override
+  public double getDouble(int row) {
+    return values[row];
+  }
+
+  /**
+   * @return the backing array, for `TableSnapshot`
+   */
+  int[] values() {
+    return values;
+  }
+}
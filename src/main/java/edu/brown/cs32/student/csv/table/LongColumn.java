@@ -0,0 +1,87 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/** A column of whole numbers too large for an int, stored in a long[] */
+public class LongColumn implements NumericColumn {
+  private final long[] values;
+
+  LongColumn(long[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.LONG;
+  }
+
+  @Override
+  public String get(int row) {
+    return Long.toString(values[row]);
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, IntConsumer rows) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0) return;
+    long target = parser.unscaled;
+    for (int i = from; i < to; i++) {
+      if (values[i] == target) rows.accept(i);
+    }
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, long[] words) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0) return;
+    ScanKernel.INSTANCE.equal(values, parser.unscaled, from, to, words);
+  }
+
+  @Override
+  public IntPredicate equalTo(String value) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value) || parser.scale != 0) return row -> false;
+    long target = parser.unscaled;
+    return row -> values[row] == target;
+  }
+
+  @Override
+  public void findInRange(NumericRange range, int from, int to, long[] words) {
+    ScanKernel.INSTANCE.range(values, range.lowLong, range.highLong, from, to, words);
+  }
+
+  @Override
+  public IntPredicate inRange(NumericRange range) {
+    long low = range.lowLong;
+    long high = range.highLong;
+    return row -> values[row] >= low && values[row] <= high;
+  }
+
+  /**
+   * Value getter
+   *
+   * @param row the row index
+   * @return the cell's value
+   */
+  public long getLong(int row) {
+    return values[row];
+  }
+
+  @Override
+  public double getDouble(int row) {
+    return values[row];
+  }
+
+  /**
+   * @return the backing array, for `TableSnapshot`
+   */
+  long[] values() {
+    return values;
+  }
+}
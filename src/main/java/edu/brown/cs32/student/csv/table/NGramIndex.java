@@ -0,0 +1,237 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+
+/**
+ * Index of the distinct values of a text column for substring and prefix matches. Every trigram
+ * (three consecutive chars) keeps the codes of the values containing it, and the trigram each value
+ * starts with is also kept as a separate "starts with" gram. A substring of at least three chars
+ * then only has to be checked against the values holding all of its trigrams, and a prefix against
+ * the values that also start with its first one. Candidates are verified against the values, as the
+ * trigrams can all occur without the text itself; shorter texts test every distinct value.
+ */
+class NGramIndex {
+  private static final int N = 3;
+  /** set on the gram a value starts with; the chars take the low 48 bits */
+  private static final long START = 1L << 48;
+
+  private final Dictionary values;
+  private final GramIds ids = new GramIds();
+  /** gram id i is in the values with codes codes[offsets[i], offsets[i + 1]), ascending */
+  private int[] offsets;
+
+  private int[] codes;
+  /** the last code added to each gram's list, so a gram repeated in one value is added once */
+  private int[] last = new int[64];
+
+  /**
+   * Constructor
+   *
+   * @param values the distinct values to index, a column's or their folded forms
+   */
+  NGramIndex(Dictionary values) {
+    this.values = values;
+    // count the values of every gram, then fill the lists in a second pass; codes are visited in
+    // ascending order, so every list comes out sorted
+    offsets = new int[64];
+    Arrays.fill(last, -1);
+    addAll(false);
+    int grams = ids.size();
+    offsets = Arrays.copyOf(offsets, grams + 1);
+    for (int i = grams; i > 0; i--) offsets[i] = offsets[i - 1];
+    offsets[0] = 0;
+    for (int i = 0; i < grams; i++) offsets[i + 1] += offsets[i];
+    codes = new int[offsets[grams]];
+    Arrays.fill(last, -1);
+    addAll(true);
+    last = null;
+  }
+
+  /**
+   * Visit the grams of every value
+   *
+   * @param fill false to count the values of each gram in `offsets[id]`, true to fill the lists,
+   *     using `offsets` as the start of each list
+   */
+  private void addAll(boolean fill) {
+    int[] next = fill ? Arrays.copyOf(offsets, offsets.length - 1) : null;
+    for (int code = 0; code < values.size(); code++) {
+      String value = values.value(code);
+      for (int i = 0; i + N <= value.length(); i++) {
+        long gram = gram(value, i);
+        add(gram, code, next);
+        if (i == 0) add(gram | START, code, next);
+      }
+    }
+  }
+
+  private void add(long gram, int code, int[] next) {
+    if (next == null) {
+      int id = ids.id(gram);
+      if (id == last.length) {
+        last = Arrays.copyOf(last, id * 2);
+        Arrays.fill(last, id, last.length, -1);
+        offsets = Arrays.copyOf(offsets, id * 2);
+      }
+      if (last[id] == code) return;
+      last[id] = code;
+      offsets[id]++;
+    } else {
+      int id = ids.find(gram);
+      if (last[id] == code) return;
+      last[id] = code;
+      codes[next[id]++] = code;
+    }
+  }
+
+  private static long gram(String s, int i) {
+    return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+  }
+
+  /**
+   * Find the values that match
+   *
+   * @param match the text to look for, folded if the values are
+   * @return the codes of the matching values, ascending
+   */
+  int[] find(TextMatch match) {
+    String text = match.text();
+    if (text.length() < N) return verify(null, match);
+    // the grams the value must hold: every trigram of the text, and unless the text may be
+    // anywhere in the value, its first one at the start
+    int grams = text.length() - N + 1;
+    boolean start = match.kind() != TextMatch.Kind.CONTAINS;
+    int[] lists = new int[start ? grams + 1 : grams];
+    for (int i = 0; i < grams; i++) lists[i] = ids.find(gram(text, i));
+    if (start) lists[grams] = ids.find(gram(text, 0) | START);
+    for (int id : lists) {
+      if (id < 0) return new int[0];
+    }
+    // intersect the lists, starting from the shortest
+    int shortest = lists[0];
+    for (int id : lists) {
+      if (size(id) < size(shortest)) shortest = id;
+    }
+    int[] ret = Arrays.copyOfRange(codes, offsets[shortest], offsets[shortest + 1]);
+    int n = ret.length;
+    for (int id : lists) {
+      if (id == shortest || n == 0) continue;
+      n = intersect(ret, n, id);
+    }
+    return verify(Arrays.copyOf(ret, n), match);
+  }
+
+  private int size(int id) {
+    return offsets[id + 1] - offsets[id];
+  }
+
+  /**
+   * Keep the codes also in a gram's list. Both are ascending, so the list is searched forward from
+   * the last match, galloping to stay fast when one is much longer than the other.
+   *
+   * @param ret the codes, the first n of which are kept in place
+   * @return the number of codes kept
+   */
+  private int intersect(int[] ret, int n, int id) {
+    int pos = offsets[id];
+    int end = offsets[id + 1];
+    int kept = 0;
+    for (int i = 0; i < n && pos < end; i++) {
+      int code = ret[i];
+      int step = 1;
+      int hi = pos;
+      while (hi < end && codes[hi] < code) {
+        pos = hi + 1;
+        hi += step;
+        step <<= 1;
+      }
+      int found = Arrays.binarySearch(codes, pos, Math.min(hi + 1, end), code);
+      if (found >= 0) {
+        ret[kept++] = code;
+        pos = found + 1;
+      } else {
+        pos = -found - 1;
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Keep the candidate values that really match
+   *
+   * @param candidates the candidate codes, or null for all of them
+   */
+  private int[] verify(int[] candidates, TextMatch match) {
+    int n = candidates == null ? values.size() : candidates.length;
+    int[] ret = new int[n];
+    int kept = 0;
+    for (int i = 0; i < n; i++) {
+      int code = candidates == null ? i : candidates[i];
+      if (match.test(values.value(code))) ret[kept++] = code;
+    }
+    return Arrays.copyOf(ret, kept);
+  }
+
+  /** Dense ids of grams, in an open-addressing table of primitive keys */
+  private static final class GramIds {
+    private long[] keys = new long[64];
+    private int[] values = new int[64];
+    private int size;
+
+    GramIds() {
+      Arrays.fill(keys, -1);
+    }
+
+    int size() {
+      return size;
+    }
+
+    private static int slot(long gram, int mask) {
+      long h = gram * 0x9E3779B97F4A7C15L;
+      return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * @return the gram's id, or -1 if no value holds it
+     */
+    int find(long gram) {
+      int mask = keys.length - 1;
+      for (int i = slot(gram, mask); ; i = (i + 1) & mask) {
+        if (keys[i] == gram) return values[i];
+        if (keys[i] == -1) return -1;
+      }
+    }
+
+    /**
+     * @return the gram's id, giving it the next one if it is new
+     */
+    int id(long gram) {
+      int mask = keys.length - 1;
+      int i = slot(gram, mask);
+      for (; keys[i] != -1; i = (i + 1) & mask) {
+        if (keys[i] == gram) return values[i];
+      }
+      keys[i] = gram;
+      values[i] = size;
+      // keep the table at most half full
+      if (++size * 2 > keys.length) rehash();
+      return size - 1;
+    }
+
+    private void rehash() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[keys.length];
+      Arrays.fill(keys, -1);
+      int mask = keys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] == -1) continue;
+        int i = slot(oldKeys[j], mask);
+        while (keys[i] != -1) i = (i + 1) & mask;
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+}
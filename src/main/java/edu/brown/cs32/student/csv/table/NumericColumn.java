@@ -0,0 +1,12 @@
+package edu.brown.cs32.student.csv.table;
+
+/** A column whose cells are numbers stored in a primitive array */
+public interface NumericColumn extends Column {
+  /**
+   * Value getter
+   *
+   * @param row the row index
+   * @return the cell's numeric value
+   */
+  double getDouble(int row);
+}
@@ -0,0 +1,187 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An interval of numbers that cells are compared against. Whole-number columns compare exactly, on
+ * the bounds rounded inward to whole numbers; decimal columns compare as doubles, on the bounds
+ * rounded to the nearest double and included or not by the decimal that double reads as; text cells
+ * that read as numbers compare exactly as decimals.
+ */
+public final class NumericRange {
+  private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+  private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+
+  /** the bounds, null where the range is unbounded */
+  private final BigDecimal low;
+
+  private final BigDecimal high;
+  private final boolean lowInclusive;
+  private final boolean highInclusive;
+  /** the whole numbers in the range are [lowLong, highLong], empty if lowLong > highLong */
+  final long lowLong;
+
+  final long highLong;
+  /** the bounds as doubles, infinite where the range is unbounded */
+  final double lowDouble;
+
+  final double highDouble;
+  /** whether the doubles equal to the bounds are in the range */
+  final boolean lowDoubleInclusive;
+
+  final boolean highDoubleInclusive;
+
+  private NumericRange(
+      BigDecimal low, boolean lowInclusive, BigDecimal high, boolean highInclusive) {
+    this.low = low;
+    this.high = high;
+    this.lowInclusive = lowInclusive;
+    this.highInclusive = highInclusive;
+    this.lowDouble = low == null ? Double.NEGATIVE_INFINITY : low.doubleValue();
+    this.highDouble = high == null ? Double.POSITIVE_INFINITY : high.doubleValue();
+    this.lowDoubleInclusive = low == null || includes(lowDouble, low, lowInclusive, 1);
+    this.highDoubleInclusive = high == null || includes(highDouble, high, highInclusive, -1);
+    long lo = Long.MIN_VALUE;
+    long hi = Long.MAX_VALUE;
+    boolean empty = false;
+    // bounds outside the longs are clamped before rounding, so a huge exponent is never expanded
+    if (low != null && low.compareTo(MAX_LONG) >= 0) {
+      empty = low.compareTo(MAX_LONG) > 0 || !lowInclusive;
+      lo = Long.MAX_VALUE;
+    } else if (low != null && low.compareTo(MIN_LONG) >= 0) {
+      // the smallest whole number in the range
+      BigDecimal first = low.setScale(0, RoundingMode.CEILING);
+      if (!lowInclusive && first.compareTo(low) == 0) first = first.add(BigDecimal.ONE);
+      lo = first.longValueExact();
+    }
+    if (high != null && high.compareTo(MIN_LONG) <= 0) {
+      empty |= high.compareTo(MIN_LONG) < 0 || !highInclusive;
+      hi = Long.MIN_VALUE;
+    } else if (high != null && high.compareTo(MAX_LONG) <= 0) {
+      BigDecimal last = high.setScale(0, RoundingMode.FLOOR);
+      if (!highInclusive && last.compareTo(high) == 0) last = last.subtract(BigDecimal.ONE);
+      hi = last.longValueExact();
+    }
+    this.lowLong = empty ? 1 : lo;
+    this.highLong = empty ? 0 : hi;
+  }
+
+  /**
+   * @param bound the number cells must exceed
+   * @return the numbers greater than the bound
+   * @throws IllegalArgumentException if the bound is not a number
+   */
+  public static NumericRange greaterThan(String bound) {
+    return new NumericRange(number(bound), false, null, true);
+  }
+
+  /**
+   * @param bound the number cells must be below
+   * @return the numbers less than the bound
+   * @throws IllegalArgumentException if the bound is not a number
+   */
+  public static NumericRange lessThan(String bound) {
+    return new NumericRange(null, true, number(bound), false);
+  }
+
+  /**
+   * @param low the smallest number in the range
+   * @param high the largest number in the range
+   * @return the numbers from low to high, both included
+   * @throws IllegalArgumentException if a bound is not a number
+   */
+  public static NumericRange between(String low, String high) {
+    return new NumericRange(number(low), true, number(high), true);
+  }
+
+  /**
+   * Decide whether the double nearest a bound is in the range. A double cell reads as the shortest
+   * decimal that rounds to it, and every other double reads as a number on the same side of the
+   * bound as the double itself, so only this one needs comparing exactly.
+   *
+   * @param side 1 if the range lies above the bound, -1 if below
+   */
+  private static boolean includes(double rounded, BigDecimal bound, boolean inclusive, int side) {
+    // a bound too large for a double is beyond every cell but those that overflowed with it
+    if (Double.isInfinite(rounded)) return inclusive;
+    int c = new BigDecimal(Double.toString(rounded)).compareTo(bound);
+    return c == 0 ? inclusive : c == side;
+  }
+
+  private static BigDecimal number(String text) {
+    try {
+      return new BigDecimal(text);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Range bound " + text + " is not a number");
+    }
+  }
+
+  /**
+   * @return true if the whole number is in the range
+   */
+  boolean contains(long value) {
+    return value >= lowLong && value <= highLong;
+  }
+
+  /**
+   * @return true if the number is in the range
+   */
+  boolean contains(double value) {
+    return (value > lowDouble || lowDoubleInclusive && value == lowDouble)
+        && (value < highDouble || highDoubleInclusive && value == highDouble);
+  }
+
+  /**
+   * @return true if the text reads as a number in the range
+   */
+  boolean contains(String text) {
+    BigDecimal value;
+    try {
+      value = new BigDecimal(text);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    if (low != null) {
+      int c = value.compareTo(low);
+      if (c < 0 || c == 0 && !lowInclusive) return false;
+    }
+    if (high != null) {
+      int c = value.compareTo(high);
+      if (c > 0 || c == 0 && !highInclusive) return false;
+    }
+    return true;
+  }
+
+  /** Ranges are equal if they hold the same numbers, however their bounds are written */
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof NumericRange other
+        && sameBound(low, other.low)
+        && sameBound(high, other.high)
+        && lowInclusive == other.lowInclusive
+        && highInclusive == other.highInclusive;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * boundHash(low) + boundHash(high);
+  }
+
+  private static boolean sameBound(BigDecimal a, BigDecimal b) {
+    return a == null ? b == null : b != null && a.compareTo(b) == 0;
+  }
+
+  private static int boundHash(BigDecimal bound) {
+    return bound == null ? 0 : bound.stripTrailingZeros().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return (low != null && lowInclusive ? "[" : "(")
+        + (low == null ? "-inf" : low.toString())
+        + ", "
+        + (high == null ? "inf" : high.toString())
+        + (high != null && highInclusive ? "]" : ")");
+  }
+}
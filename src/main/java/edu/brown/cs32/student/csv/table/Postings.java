@@ -0,0 +1,67 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.function.IntConsumer;
+
+/**
+ * The rows holding one value in a column index: the slice rows[from, to) of the index's row array,
+ * in ascending row order. The postings of a range (`ColumnIndex.range`) are in order of value.
+ *
+ * @param rows the index's row array, shared and never modified
+ * @param from the first position of the slice
+ * @param to the end position (exclusive) of the slice
+ */
+public record Postings(int[] rows, int from, int to) {
+  /** postings of a value no cell holds */
+  public static final Postings EMPTY = new Postings(new int[0], 0, 0);
+
+  /**
+   * @return the number of rows
+   */
+  public int size() {
+    return to - from;
+  }
+
+  /**
+   * Row getter
+   *
+   * @param i the position in the postings
+   * @return the i-th smallest row
+   */
+  public int get(int i) {
+    return rows[from + i];
+  }
+
+  /**
+   * The rows in a window, found by binary search; only for postings in row order
+   *
+   * @param first the first row of the window
+   * @param end the end (exclusive) of the window
+   * @return the slice of the rows in [first, end)
+   */
+  public Postings within(int first, int end) {
+    return new Postings(rows, lowerBound(first), lowerBound(end));
+  }
+
+  /**
+   * @return the first position whose row is at least `row`
+   */
+  private int lowerBound(int row) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (rows[mid] < row) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /**
+   * Hand every row to a consumer
+   *
+   * @param consumer receives the rows in ascending order
+   */
+  public void forEach(IntConsumer consumer) {
+    for (int i = from; i < to; i++) consumer.accept(rows[i]);
+  }
+}
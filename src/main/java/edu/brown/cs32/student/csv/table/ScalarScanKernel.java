@@ -0,0 +1,39 @@
+package edu.brown.cs32.student.csv.table;
+
+/** The scan kernels as plain loops, testing one cell at a time */
+class ScalarScanKernel implements ScanKernel {
+  @Override
+  public void equal(int[] values, int target, int from, int to, long[] words) {
+    for (int i = from; i < to; i++) {
+      if (values[i] == target) words[i >>> 6] |= 1L << i;
+    }
+  }
+
+  @Override
+  public void equal(long[] values, long target, int from, int to, long[] words) {
+    for (int i = from; i < to; i++) {
+      if (values[i] == target) words[i >>> 6] |= 1L << i;
+    }
+  }
+
+  @Override
+  public void range(int[] values, int low, int high, int from, int to, long[] words) {
+    for (int i = from; i < to; i++) {
+      if (values[i] >= low && values[i] <= high) words[i >>> 6] |= 1L << i;
+    }
+  }
+
+  @Override
+  public void range(long[] values, long low, long high, int from, int to, long[] words) {
+    for (int i = from; i < to; i++) {
+      if (values[i] >= low && values[i] <= high) words[i >>> 6] |= 1L << i;
+    }
+  }
+
+  @Override
+  public void range(double[] values, NumericRange range, int from, int to, long[] words) {
+    for (int i = from; i < to; i++) {
+      if (range.contains(values[i])) words[i >>> 6] |= 1L << i;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * The loops of the common column scans: equality with a value and membership of an interval, over
+ * primitive arrays. Every kernel sets the bit of each matching row in a bitmap of 64 rows per word,
+ * ORing into words it shares with other ranges, so disjoint ranges can be scanned in parallel into
+ * one bitmap.
+ *
+ * <p>`INSTANCE` uses the JDK's Vector API when the `jdk.incubator.vector` module is available (the
+ * JVM runs with `--add-modules jdk.incubator.vector`), and the plain loops otherwise.
+ */
+interface ScanKernel {
+  /** the fastest kernel this JVM supports */
+  ScanKernel INSTANCE = load();
+
+  private static ScanKernel load() {
+    try {
+      return (ScanKernel)
+          Class.forName("edu.brown.cs32.student.csv.table.VectorScanKernel")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // the incubator module is not in the module graph
+      return new ScalarScanKernel();
+    }
+  }
+
+  /**
+   * @param values the cells
+   * @param target the value to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param words the bitmap the matching rows are set in
+   */
+  void equal(int[] values, int target, int from, int to, long[] words);
+
+  /** Same as the int version, over longs */
+  void equal(long[] values, long target, int from, int to, long[] words);
+
+  /**
+   * @param values the cells
+   * @param low the smallest value to match
+   * @param high the largest value to match
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param words the bitmap the matching rows are set in
+   */
+  void range(int[] values, int low, int high, int from, int to, long[] words);
+
+  /** Same as the int version, over longs */
+  void range(long[] values, long low, long high, int from, int to, long[] words);
+
+  /**
+   * @param values the cells
+   * @param range the interval to match, by its bounds as doubles
+   * @param from the first row to test
+   * @param to the end (exclusive) of the rows to test
+   * @param words the bitmap the matching rows are set in
+   */
+  void range(double[] values, NumericRange range, int from, int to, long[] words);
+}
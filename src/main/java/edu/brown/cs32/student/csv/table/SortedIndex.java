@@ -0,0 +1,168 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * Index of a numeric column: its rows sorted by value, so the rows holding a value, or a range of
+ * values, are one slice found by binary search. Decimal cells are further sorted by their number of
+ * fraction digits, since "1.5" and "1.50" are different text. Ties keep ascending row order, as the
+ * sort is a stable LSD radix sort over the values' bits.
+ */
+class SortedIndex implements ColumnIndex {
+  private final ColumnType type;
+  private final int[] ints;
+  private final long[] longs;
+  private final double[] doubles;
+  private final byte[] scales;
+  /** every row, sorted by (value, scale, row) */
+  private final int[] rows;
+
+  SortedIndex(NumericColumn column) {
+    type = column.type();
+    ints = column instanceof IntColumn c ? c.values() : null;
+    longs = column instanceof LongColumn c ? c.values() : null;
+    doubles = column instanceof DoubleColumn c ? c.values() : null;
+    scales = column instanceof DoubleColumn c ? c.scales() : null;
+    int size = column.size();
+    int[] order = new int[size];
+    for (int r = 0; r < size; r++) order[r] = r;
+    long[] keys = new long[size];
+    if (scales != null) {
+      for (int r = 0; r < size; r++) keys[r] = scales[r];
+      order = radixSort(order, keys, 1);
+    }
+    // flipping the sign bit turns signed order into the unsigned order the digits sort by
+    for (int i = 0; i < size; i++) keys[i] = key(order[i]) ^ Long.MIN_VALUE;
+    rows = radixSort(order, keys, 8);
+  }
+
+  /**
+   * Stable LSD radix sort of rows by the low `bytes` bytes of their unsigned keys, skipping digits
+   * all keys share. The keys are moved along with the rows, so every pass reads both in order.
+   *
+   * @param rows the rows to sort
+   * @param keys the key of each row, by position in `rows`; scrambled by the sort
+   * @return the sorted rows, in `rows` or a new array
+   */
+  private static int[] radixSort(int[] rows, long[] keys, int bytes) {
+    int n = rows.length;
+    int[] tmpRows = new int[n];
+    long[] tmpKeys = new long[n];
+    for (int shift = 0; shift < bytes * 8; shift += 8) {
+      int[] count = new int[257];
+      for (int i = 0; i < n; i++) count[(int) ((keys[i] >>> shift) & 0xff) + 1]++;
+      boolean same = false;
+      for (int d = 1; d <= 256; d++) same |= count[d] == n;
+      if (same) continue;
+      for (int d = 0; d < 256; d++) count[d + 1] += count[d];
+      for (int i = 0; i < n; i++) {
+        int to = count[(int) ((keys[i] >>> shift) & 0xff)]++;
+        tmpRows[to] = rows[i];
+        tmpKeys[to] = keys[i];
+      }
+      int[] r = rows;
+      rows = tmpRows;
+      tmpRows = r;
+      long[] k = keys;
+      keys = tmpKeys;
+      tmpKeys = k;
+    }
+    return rows;
+  }
+
+  /**
+   * @return a key of the row's value whose signed order is the values' order
+   */
+  private long key(int row) {
+    return switch (type) {
+      case INT -> ints[row];
+      case LONG -> longs[row];
+      default -> sortable(doubles[row]);
+    };
+  }
+
+  private static long sortable(double value) {
+    long bits = Double.doubleToLongBits(value);
+    // negative doubles order backwards by their bits
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  private int scale(int row) {
+    return scales == null ? 0 : scales[row];
+  }
+
+  /**
+   * @return the first position whose (value, scale) is at least (key, scale)
+   */
+  private int lowerBound(long key, int scale) {
+    int lo = 0;
+    int hi = rows.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int row = rows[mid];
+      long k = key(row);
+      if (k < key || (k == key && scale(row) < scale)) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  @Override
+  public Postings lookup(String value) {
+    Decimals parser = Decimals.parser();
+    if (!parser.parse(value)) return Postings.EMPTY;
+    long key;
+    int scale = 0;
+    switch (type) {
+      case INT -> {
+        if (parser.scale != 0 || parser.unscaled != (int) parser.unscaled) return Postings.EMPTY;
+        key = parser.unscaled;
+      }
+      case LONG -> {
+        if (parser.scale != 0) return Postings.EMPTY;
+        key = parser.unscaled;
+      }
+      default -> {
+        if (!Decimals.fitsDouble(parser.unscaled)) return Postings.EMPTY;
+        key = sortable(Decimals.toDouble(parser.unscaled, parser.scale));
+        scale = parser.scale;
+      }
+    }
+    return new Postings(rows, lowerBound(key, scale), lowerBound(key, scale + 1));
+  }
+
+  /**
+   * @return the first position whose value is at least the key's
+   */
+  private int lowerBound(long key) {
+    return lowerBound(key, Integer.MIN_VALUE);
+  }
+
+  @Override
+  public Postings range(NumericRange range) {
+    int from;
+    int to;
+    if (type == ColumnType.DOUBLE) {
+      // adjacent doubles have adjacent sortable keys
+      long low = sortable(range.lowDouble);
+      long high = sortable(range.highDouble);
+      from = lowerBound(range.lowDoubleInclusive ? low : low + 1);
+      to = lowerBound(range.highDoubleInclusive ? high + 1 : high);
+    } else {
+      if (range.lowLong > range.highLong) return Postings.EMPTY;
+      from = lowerBound(range.lowLong);
+      to = range.highLong == Long.MAX_VALUE ? rows.length : lowerBound(range.highLong + 1);
+    }
+    if (from >= to) return Postings.EMPTY;
+    return new Postings(rows, from, to);
+  }
+
+  @Override
+  public Postings[] text(TextMatch match) {
+    // the rows are in order of value, not of text
+    return null;
+  }
+
+  @Override
+  public boolean indexes(TextMatch match) {
+    return false;
+  }
+}
@@ -0,0 +1,173 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.math.BigDecimal;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A dictionary-encoded text column: each cell is an int code into the column's distinct values, so
+ * repeated values are stored once and equality is an int comparison.
+ */
+public class StringColumn implements Column {
+  private final int[] codes;
+  private final int size;
+  private final Dictionary dict;
+  /** the folded form of every value, computed on first use */
+  private volatile FoldedDictionary folded;
+  /** the number every value reads as, computed on first use */
+  private volatile double[] numbers;
+
+  StringColumn(int[] codes, int size, Dictionary dict) {
+    this.codes = codes;
+    this.size = size;
+    this.dict = dict;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public ColumnType type() {
+    return ColumnType.STRING;
+  }
+
+  @Override
+  public String get(int row) {
+    return dict.value(codes[row]);
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, IntConsumer rows) {
+    int code = dict.find(value);
+    if (code < 0) return;
+    for (int i = from; i < to; i++) {
+      if (codes[i] == code) rows.accept(i);
+    }
+  }
+
+  @Override
+  public void findEqual(String value, int from, int to, long[] words) {
+    int code = dict.find(value);
+    if (code >= 0) ScanKernel.INSTANCE.equal(codes, code, from, to, words);
+  }
+
+  @Override
+  public IntPredicate equalTo(String value) {
+    int code = dict.find(value);
+    if (code < 0) return row -> false;
+    return row -> codes[row] == code;
+  }
+
+  @Override
+  public IntPredicate inRange(NumericRange range) {
+    // each distinct value is read as a number once
+    boolean[] match = new boolean[dict.size()];
+    for (int code = 0; code < match.length; code++) match[code] = range.contains(dict.value(code));
+    return row -> match[codes[row]];
+  }
+
+  @Override
+  public IntPredicate matches(TextMatch match) {
+    boolean[] matched = new boolean[dict.size()];
+    if (match.insensitive()) {
+      // test each folded form once
+      FoldedDictionary f = folded();
+      boolean[] foldMatched = new boolean[f.values.size()];
+      for (int i = 0; i < foldMatched.length; i++) foldMatched[i] = match.test(f.values.value(i));
+      for (int code = 0; code < matched.length; code++)
+        matched[code] = foldMatched[f.foldedCodes[code]];
+    } else {
+      for (int code = 0; code < matched.length; code++)
+        matched[code] = match.test(dict.value(code));
+    }
+    return row -> matched[codes[row]];
+  }
+
+  /**
+   * @return the dictionary of the distinct values
+   */
+  Dictionary dictionary() {
+    return dict;
+  }
+
+  /**
+   * @return the folded forms of the distinct values, computed once for the column
+   */
+  FoldedDictionary folded() {
+    FoldedDictionary ret = folded;
+    if (ret == null) {
+      synchronized (this) {
+        ret = folded;
+        if (ret == null) folded = ret = new FoldedDictionary(dict);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Read every distinct value as a number once, the way a range query compares the cells
+   *
+   * @return the number each code's value reads as, or NaN if it is not a number
+   */
+  public double[] numbers() {
+    double[] ret = numbers;
+    if (ret == null) {
+      ret = new double[dict.size()];
+      for (int code = 0; code < ret.length; code++) {
+        try {
+          ret[code] = new BigDecimal(dict.value(code)).doubleValue();
+        } catch (NumberFormatException e) {
+          ret[code] = Double.NaN;
+        }
+      }
+      numbers = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * Code getter
+   *
+   * @param row the row index
+   * @return the code of the row's cell
+   */
+  public int code(int row) {
+    return codes[row];
+  }
+
+  /**
+   * Look up a value's code
+   *
+   * @param value the text to look up
+   * @return its code, or -1 if no cell holds it
+   */
+  public int code(String value) {
+    return dict.find(value);
+  }
+
+  /**
+   * @return the number of distinct values
+   */
+  public int cardinality() {
+    return dict.size();
+  }
+
+  /**
+   * Value getter
+   *
+   * @param code a code of this column
+   * @return the value with that code
+   */
+  public String value(int code) {
+    return dict.value(code);
+  }
+
+  /**
+   * @return the code of every cell, for `TableSnapshot`
+   */
+  int[] codes() {
+    return codes;
+  }
+}
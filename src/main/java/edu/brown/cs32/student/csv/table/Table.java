@@ -0,0 +1,120 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, column-oriented CSV table. Cells are stored per column instead of as a `List` of
+ * `String` per row, which keeps repeated values once and lets searches scan a single column.
+ */
+public class Table {
+  private final List<String> header;
+  private final Map<String, Integer> columnIndex = new HashMap<>();
+  private final Column[] columns;
+  private final int rows;
+
+  /** Constructor */
+  Table(List<String> header, Column[] columns, int rows) {
+    this.header = List.copyOf(header);
+    for (int i = header.size() - 1; i >= 0; i--) columnIndex.put(header.get(i), i);
+    this.columns = columns;
+    this.rows = rows;
+  }
+
+  /**
+   * Build a table from rows of text
+   *
+   * @param header the header, empty if there is none
+   * @param data the rows, all with the same number of cells
+   * @return the table
+   */
+  public static Table of(List<String> header, List<List<String>> data) {
+    int width = data.isEmpty() ? header.size() : data.get(0).size();
+    TableBuilder builder = new TableBuilder(header, width);
+    for (List<String> row : data) {
+      for (int i = 0; i < width; i++) builder.add(i, row.get(i));
+      builder.endRow();
+    }
+    return builder.build();
+  }
+
+  /**
+   * Header Getter
+   *
+   * @return the CSV header, empty if the table has none
+   */
+  public List<String> getHeader() {
+    return header;
+  }
+
+  public boolean hasHeader() {
+    return !header.isEmpty();
+  }
+
+  /**
+   * Find a column by its header name
+   *
+   * @param name the column name
+   * @return the index of the first column with that name, or -1
+   */
+  public int columnIndex(String name) {
+    return columnIndex.getOrDefault(name, -1);
+  }
+
+  /**
+   * @return the number of rows, excluding the header
+   */
+  public int rowCount() {
+    return rows;
+  }
+
+  /**
+   * @return the number of columns
+   */
+  public int columnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Column getter
+   *
+   * @param i the column index
+   * @return the column
+   */
+  public Column column(int i) {
+    return columns[i];
+  }
+
+  /**
+   * Cell getter
+   *
+   * @return the text of the cell at (row, col)
+   */
+  public String get(int row, int col) {
+    return columns[col].get(row);
+  }
+
+  /**
+   * Row getter
+   *
+   * @param row the row index
+   * @return the row's cells as a new List
+   */
+  public List<String> row(int row) {
+    String[] cells = new String[columns.length];
+    for (int i = 0; i < cells.length; i++) cells[i] = columns[i].get(row);
+    return Arrays.asList(cells);
+  }
+
+  /**
+   * @return every row as a new List
+   */
+  public List<List<String>> rows() {
+    List<List<String>> ret = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) ret.add(row(i));
+    return ret;
+  }
+}
@@ -0,0 +1,115 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.List;
+
+/**
+ * Build a `Table` one cell at a time. Cells can be handed over as a range of a character buffer, so
+ * a parser can fill the table straight from its own buffers. Each column's type is either declared
+ * or inferred from its cells: numeric columns are kept in primitive arrays, and only text columns
+ * make a `String`, for values they have not seen before.
+ */
+public class TableBuilder {
+  private final List<String> header;
+  private final ColumnBuilder[] columns;
+  private int rows;
+
+  /**
+   * Constructor inferring every column's type
+   *
+   * @param header the header, empty if there is none
+   * @param columns the number of cells in every row
+   */
+  public TableBuilder(List<String> header, int columns) {
+    this(header, columns, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param header the header, empty if there is none
+   * @param columns the number of cells in every row
+   * @param types the declared type of each column, null entries (or a null array) to infer them
+   * @throws IllegalArgumentException if there is not one type per column
+   */
+  public TableBuilder(List<String> header, int columns, ColumnType[] types) {
+    if (types != null && types.length != columns)
+      throw new IllegalArgumentException(
+          "has " + columns + " columns, but " + types.length + " types were given");
+    this.header = header;
+    this.columns = new ColumnBuilder[columns];
+    for (int i = 0; i < columns; i++)
+      this.columns[i] = new ColumnBuilder(types == null ? null : types[i]);
+  }
+
+  /**
+   * @return the number of cells in every row
+   */
+  public int columnCount() {
+    return columns.length;
+  }
+
+  /**
+   * @return the number of complete rows added so far
+   */
+  public int rowCount() {
+    return rows;
+  }
+
+  /**
+   * @return the declared or inferred type of every column, so far
+   */
+  public ColumnType[] types() {
+    ColumnType[] ret = new ColumnType[columns.length];
+    for (int i = 0; i < ret.length; i++) ret[i] = columns[i].type();
+    return ret;
+  }
+
+  /**
+   * Add the next cell of column `col` from buf[start, end)
+   *
+   * @param col the column index
+   * @param buf the buffer holding the cell
+   * @param start the offset of the cell in buf
+   * @param end the end offset (exclusive) of the cell in buf
+   * @throws IllegalArgumentException if the column's type is declared and the cell does not fit it
+   */
+  public void add(int col, char[] buf, int start, int end) {
+    columns[col].add(buf, start, end);
+  }
+
+  /**
+   * Add the next cell of column `col`
+   *
+   * @param col the column index
+   * @param value the cell's text
+   * @throws IllegalArgumentException if the column's type is declared and the cell does not fit it
+   */
+  public void add(int col, String value) {
+    columns[col].add(value.toCharArray(), 0, value.length());
+  }
+
+  /** Finish the current row, after one cell was added to every column */
+  public void endRow() {
+    rows++;
+  }
+
+  /**
+   * Add all rows of another builder after the rows of this one. A column whose inferred type
+   * differs between the two is widened to hold both.
+   *
+   * @param other a builder with the same number of columns
+   */
+  public void append(TableBuilder other) {
+    for (int i = 0; i < columns.length; i++) columns[i].append(other.columns[i]);
+    rows += other.rows;
+  }
+
+  /**
+   * @return the finished table; the builder must not be used afterwards
+   */
+  public Table build() {
+    Column[] ret = new Column[columns.length];
+    for (int i = 0; i < ret.length; i++) ret[i] = columns[i].build();
+    return new Table(header, ret, rows);
+  }
+}
@@ -0,0 +1,89 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Equality indexes over every column of a `Table`, built once when the table is loaded. A table
+ * never changes, so the index stays valid for as long as its table is the loaded one.
+ */
+public class TableIndex {
+  private final ColumnIndex[] columns;
+
+  private TableIndex(ColumnIndex[] columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * Index every column of a table, the columns in parallel
+   *
+   * @param table the table
+   * @return the index
+   */
+  public static TableIndex build(Table table) {
+    return build(table, false);
+  }
+
+  /**
+   * Index every column of a table, the columns in parallel
+   *
+   * @param table the table
+   * @param textIndex whether to also index text columns for substring, prefix and fuzzy matches
+   * @return the index
+   */
+  public static TableIndex build(Table table, boolean textIndex) {
+    ColumnIndex[] columns = new ColumnIndex[table.columnCount()];
+    Arrays.parallelSetAll(columns, i -> ColumnIndex.of(table.column(i), textIndex));
+    return new TableIndex(columns);
+  }
+
+  /**
+   * Column index getter
+   *
+   * @param i the column index
+   * @return the index of column i
+   */
+  public ColumnIndex column(int i) {
+    return columns[i];
+  }
+
+  /**
+   * Find the rows where any cell equals a value, by merging the postings of every column
+   *
+   * @param value the text to match
+   * @param rows receives each matching row once, in ascending order
+   */
+  public void findAny(String value, IntConsumer rows) {
+    findAny(value, 0, Integer.MAX_VALUE, rows);
+  }
+
+  /**
+   * Find the rows of a window where any cell equals a value
+   *
+   * @param value the text to match
+   * @param first the first row of the window
+   * @param end the end (exclusive) of the window
+   * @param rows receives each matching row of the window once, in ascending order
+   */
+  public void findAny(String value, int first, int end, IntConsumer rows) {
+    Postings[] lists = new Postings[columns.length];
+    int[] pos = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) lists[i] = columns[i].lookup(value).within(first, end);
+    int last = -1;
+    while (true) {
+      // the tables have few columns, so a linear pick of the smallest head is enough
+      int min = Integer.MAX_VALUE;
+      int from = -1;
+      for (int i = 0; i < lists.length; i++) {
+        if (pos[i] < lists[i].size() && lists[i].get(pos[i]) < min) {
+          min = lists[i].get(pos[i]);
+          from = i;
+        }
+      }
+      if (from < 0) return;
+      pos[from]++;
+      if (min != last) rows.accept(min);
+      last = min;
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package edu.brown.cs32.student.csv.table;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary image of a `Table`, so a CSV file that has not changed can be reloaded without parsing
+ * it again. The snapshot records the size and modification time of the source file and the options
+ * it was parsed with, and is only used while all of them still match.
+ *
+ * <p>Layout, little-endian: magic, version, source size, source mtime, options, row count, header,
+ * then per column its type followed by its primitive array (`DOUBLE` adds the scale of every cell,
+ * `STRING` puts its dictionary before the codes). Strings are a length followed by UTF-16 chars. On
+ * reload the file is memory-mapped and each array is bulk-copied out of the mapping.
+ */
+public final class TableSnapshot {
+  private static final int MAGIC = 0x50414E53; // "SNAP"
+  private static final int VERSION = 1;
+  /** largest region mapped at once when reading */
+  private static final long WINDOW = 1L << 30;
+
+  private TableSnapshot() {}
+
+  /**
+   * Write a table's snapshot. The file is written next to its final path and moved into place, so a
+   * reader never sees a partial snapshot.
+   *
+   * @param table the table parsed from `source`
+   * @param snapshot where to write the snapshot
+   * @param source the CSV file the table was parsed from
+   * @param options the parse options, e.g. header and declared types, that produced the table
+   * @throws IOException if the snapshot cannot be written
+   */
+  public static void write(Table table, Path snapshot, Path source, String options)
+      throws IOException {
+    Path parent = snapshot.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      Output out = new Output(channel);
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      out.putLong(Files.size(source));
+      out.putLong(Files.getLastModifiedTime(source).toMillis());
+      out.putString(options);
+      out.putInt(table.rowCount());
+      out.putInt(table.getHeader().size());
+      for (String name : table.getHeader()) out.putString(name);
+      out.putInt(table.columnCount());
+      for (int i = 0; i < table.columnCount(); i++) writeColumn(out, table.column(i));
+      out.flush();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeColumn(Output out, Column column) throws IOException {
+    out.putInt(column.type().ordinal());
+    switch (column.type()) {
+      case INT -> out.putInts(((IntColumn) column).values());
+      case LONG -> out.putLongs(((LongColumn) column).values());
+      case DOUBLE -> {
+        out.putDoubles(((DoubleColumn) column).values());
+        out.putBytes(((DoubleColumn) column).scales());
+      }
+      case STRING -> {
+        StringColumn strings = (StringColumn) column;
+        out.putInt(strings.cardinality());
+        for (int code = 0; code < strings.cardinality(); code++) out.putString(strings.value(code));
+        out.putInts(strings.codes());
+      }
+    }
+  }
+
+  /**
+   * Read a table's snapshot, if it is still current
+   *
+   * @param snapshot the snapshot file
+   * @param source the CSV file the snapshot was written for
+   * @param options the parse options the table is wanted with
+   * @return the table, or null if there is no snapshot, it is unreadable, or the source file or the
+   *     options changed since it was written
+   */
+  public static Table read(Path snapshot, Path source, String options) {
+    if (!Files.isRegularFile(snapshot)) return null;
+    try (FileChannel channel = FileChannel.open(snapshot)) {
+      Input in = new Input(channel);
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+      long size = in.getLong();
+      long mtime = in.getLong();
+      if (size != Files.size(source)
+          || mtime != Files.getLastModifiedTime(source).toMillis()
+          || !in.getString().equals(options)) return null;
+      int rows = in.getInt();
+      int headerSize = in.getInt();
+      List<String> header = new ArrayList<>(headerSize);
+      for (int i = 0; i < headerSize; i++) header.add(in.getString());
+      Column[] columns = new Column[in.getInt()];
+      for (int i = 0; i < columns.length; i++) columns[i] = readColumn(in, rows);
+      return new Table(header, columns, rows);
+    } catch (IOException | RuntimeException e) {
+      // a truncated or foreign file: parse the source instead
+      return null;
+    }
+  }
+
+  private static Column readColumn(Input in, int rows) throws IOException {
+    ColumnType type = ColumnType.values()[in.getInt()];
+    return switch (type) {
+      case INT -> new IntColumn(in.getInts(new int[rows]));
+      case LONG -> new LongColumn(in.getLongs(new long[rows]));
+      case DOUBLE -> new DoubleColumn(in.getDoubles(new double[rows]), in.getBytes(new byte[rows]));
+      case STRING -> {
+        Dictionary dict = new Dictionary();
+        int cardinality = in.getInt();
+        for (int code = 0; code < cardinality; code++) dict.intern(in.getString());
+        yield new StringColumn(in.getInts(new int[rows]), rows, dict);
+      }
+    };
+  }
+
+  /** Buffered writes of primitives and arrays to a channel */
+  private static final class Output {
+    private final FileChannel channel;
+    private final ByteBuffer buf =
+        ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+    Output(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /** Make room for n bytes, n at most the buffer's capacity */
+    private void room(int n) throws IOException {
+      if (buf.remaining() < n) flush();
+    }
+
+    void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) channel.write(buf);
+      buf.clear();
+    }
+
+    void putInt(int v) throws IOException {
+      room(4);
+      buf.putInt(v);
+    }
+
+    void putLong(long v) throws IOException {
+      room(8);
+      buf.putLong(v);
+    }
+
+    void putString(String s) throws IOException {
+      putInt(s.length());
+      for (int done = 0; done < s.length(); ) {
+        room(2);
+        int n = Math.min(s.length() - done, buf.remaining() / 2);
+        for (int k = 0; k < n; k++) buf.putChar(s.charAt(done + k));
+        done += n;
+      }
+    }
+
+    void putInts(int[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        room(4);
+        int n = Math.min(a.length - done, buf.remaining() / 4);
+        buf.asIntBuffer().put(a, done, n);
+        buf.position(buf.position() + n * 4);
+        done += n;
+      }
+    }
+
+    void putLongs(long[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        room(8);
+        int n = Math.min(a.length - done, buf.remaining() / 8);
+        buf.asLongBuffer().put(a, done, n);
+        buf.position(buf.position() + n * 8);
+        done += n;
+      }
+    }
+
+    void putDoubles(double[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        room(8);
+        int n = Math.min(a.length - done, buf.remaining() / 8);
+        buf.asDoubleBuffer().put(a, done, n);
+        buf.position(buf.position() + n * 8);
+        done += n;
+      }
+    }
+
+    void putBytes(byte[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        room(1);
+        int n = Math.min(a.length - done, buf.remaining());
+        buf.put(a, done, n);
+        done += n;
+      }
+    }
+  }
+
+  /** Reads of primitives and arrays from a channel, mapped in windows of at most `WINDOW` */
+  private static final class Input {
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    Input(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      map(0);
+    }
+
+    private void map(long start) throws IOException {
+      windowStart = start;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+      window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Make sure n bytes, at most 8, can be read from the current window */
+    private void need(int n) throws IOException {
+      if (window.remaining() < n) map(windowStart + window.position());
+    }
+
+    int getInt() throws IOException {
+      need(4);
+      return window.getInt();
+    }
+
+    long getLong() throws IOException {
+      need(8);
+      return window.getLong();
+    }
+
+    String getString() throws IOException {
+      char[] chars = new char[getInt()];
+      for (int done = 0; done < chars.length; ) {
+        need(2);
+        int n = Math.min(chars.length - done, window.remaining() / 2);
+        window.asCharBuffer().get(chars, done, n);
+        window.position(window.position() + n * 2);
+        done += n;
+      }
+      return new String(chars);
+    }
+
+    int[] getInts(int[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        need(4);
+        int n = Math.min(a.length - done, window.remaining() / 4);
+        window.asIntBuffer().get(a, done, n);
+        window.position(window.position() + n * 4);
+        done += n;
+      }
+      return a;
+    }
+
+    long[] getLongs(long[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        need(8);
+        int n = Math.min(a.length - done, window.remaining() / 8);
+        window.asLongBuffer().get(a, done, n);
+        window.position(window.position() + n * 8);
+        done += n;
+      }
+      return a;
+    }
+
+    double[] getDoubles(double[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        need(8);
+        int n = Math.min(a.length - done, window.remaining() / 8);
+        window.asDoubleBuffer().get(a, done, n);
+        window.position(window.position() + n * 8);
+        done += n;
+      }
+      return a;
+    }
+
+    byte[] getBytes(byte[] a) throws IOException {
+      for (int done = 0; done < a.length; ) {
+        need(1);
+        int n = Math.min(a.length - done, window.remaining());
+        window.get(a, done, n);
+        done += n;
+      }
+      return a;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package edu.brown.cs32.student.csv.table;
+
+/**
+ * A test of a cell's text against a value or part of one
+ *
+ * @param kind how the text is compared
+ * @param text the text to look for, already folded if the match is insensitive
+ * @param insensitive true to compare the folded forms (see `Folding`) of the cells
+ * @param distance the most edits a cell may be from the text, for a fuzzy match
+ */
+public record TextMatch(Kind kind, String text, boolean insensitive, int distance) {
+  /** How a cell is compared with the text */
+  public enum Kind {
+    EQUALS,
+    CONTAINS,
+    PREFIX,
+    FUZZY
+  }
+
+  /**
+   * @param text the text to look for
+   * @return a match of the cells equal to the text
+   */
+  public static TextMatch equal(String text) {
+    return new TextMatch(Kind.EQUALS, text, false, 0);
+  }
+
+  /**
+   * @param text the text to look for
+   * @return a match of the cells containing the text
+   */
+  public static TextMatch contains(String text) {
+    return new TextMatch(Kind.CONTAINS, text, false, 0);
+  }
+
+  /**
+   * @param text the text to look for
+   * @return a match of the cells starting with the text
+   */
+  public static TextMatch prefix(String text) {
+    return new TextMatch(Kind.PREFIX, text, false, 0);
+  }
+
+  /**
+   * @param text the text to look for
+   * @param distance the most single-char insertions, deletions and substitutions a cell may be from
+   *     the text
+   * @return a match of the cells within the edit distance of the text
+   * @throws IllegalArgumentException if the distance is negative
+   */
+  public static TextMatch fuzzy(String text, int distance) {
+    if (distance < 0)
+      throw new IllegalArgumentException("Fuzzy distance " + distance + " is negative");
+    return new TextMatch(Kind.FUZZY, text, false, distance);
+  }
+
+  /**
+   * @return the same match, ignoring case and accents
+   */
+  public TextMatch ignoringCase() {
+    return insensitive ? this : new TextMatch(kind, Folding.fold(text), true, distance);
+  }
+
+  /**
+   * @param cell a cell's text, folded if the match is insensitive
+   * @return true if the cell matches
+   */
+  public boolean test(String cell) {
+    return switch (kind) {
+      case EQUALS -> cell.equals(text);
+      case CONTAINS -> cell.contains(text);
+      case PREFIX -> cell.startsWith(text);
+      case FUZZY -> EditDistance.local().distance(text, cell, distance) <= distance;
+    };
+  }
+
+  @Override
+  public String toString() {
+    String ret = (insensitive ? "case-insensitive " : "") + kind.name().toLowerCase() + " " + text;
+    return kind == Kind.FUZZY ? ret + " within " + distance : ret;
+  }
+}
@@ -0,0 +1,156 @@
+package edu.brown.cs32.student.csv.table;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The scan kernels on the Vector API: the words of the bitmap are filled 64 rows at a time, each
+ * from the comparison masks of as many vectors as 64 rows take. The rows before the first whole
+ * word and after the last one go through the plain loops. Only loaded when the
+ * `jdk.incubator.vector` module is available (see `ScanKernel.INSTANCE`).
+ */
+class VectorScanKernel extends ScalarScanKernel {
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+  /** the same shape as `LONGS`, so lane i of a double vector lines up with lane i of a long one */
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+  /** lane i holds 1 << i, so blending with a mask and ORing the lanes packs the mask into bits */
+  private static final IntVector INT_BITS =
+      IntVector.broadcast(INTS, 1).lanewise(VectorOperators.LSHL, IntVector.zero(INTS).addIndex(1));
+
+  private static final LongVector LONG_BITS =
+      LongVector.broadcast(LONGS, 1)
+          .lanewise(VectorOperators.LSHL, LongVector.zero(LONGS).addIndex(1));
+
+  /** lane i holds the double whose bits are 1L << i, for packing masks of doubles the same way */
+  private static final DoubleVector DOUBLE_BITS = LONG_BITS.reinterpretAsDoubles();
+
+  private static final IntVector NO_INTS = IntVector.zero(INTS);
+  private static final LongVector NO_LONGS = LongVector.zero(LONGS);
+  private static final DoubleVector NO_DOUBLES = DoubleVector.zero(DOUBLES);
+
+  /**
+   * Pack a mask into bits. `VectorMask.toLong` would do, but the JDK 17 compiler does not turn it
+   * into vector instructions, while a blend and an OR reduction it does.
+   *
+   * @return the lanes of the mask that are set, lane i as bit i
+   */
+  private static long bits(VectorMask<Integer> mask) {
+    if (!mask.anyTrue()) return 0;
+    return NO_INTS.blend(INT_BITS, mask).reduceLanes(VectorOperators.OR) & 0xFFFFFFFFL;
+  }
+
+  private static long longBits(VectorMask<Long> mask) {
+    if (!mask.anyTrue()) return 0;
+    return NO_LONGS.blend(LONG_BITS, mask).reduceLanes(VectorOperators.OR);
+  }
+
+  private static long doubleBits(VectorMask<Double> mask) {
+    if (!mask.anyTrue()) return 0;
+    return NO_DOUBLES.blend(DOUBLE_BITS, mask).reinterpretAsLongs().reduceLanes(VectorOperators.OR);
+  }
+
+  /**
+   * @return the first row of [from, to) that starts a word, or `to` if there is none
+   */
+  private static int firstWord(int from, int to) {
+    return Math.min(to, (from + 63) & ~63);
+  }
+
+  /**
+   * @return the end of the whole words of [start, to), where `start` starts a word
+   */
+  private static int lastWord(int start, int to) {
+    return start + ((to - start) & ~63);
+  }
+
+  @Override
+  public void equal(int[] values, int target, int from, int to, long[] words) {
+    int start = firstWord(from, to);
+    int end = lastWord(start, to);
+    super.equal(values, target, from, start, words);
+    for (int i = start; i < end; i += 64) {
+      long word = 0;
+      for (int j = 0; j < 64; j += INTS.length())
+        word |= bits(IntVector.fromArray(INTS, values, i + j).eq(target)) << j;
+      words[i >>> 6] |= word;
+    }
+    super.equal(values, target, end, to, words);
+  }
+
+  @Override
+  public void equal(long[] values, long target, int from, int to, long[] words) {
+    int start = firstWord(from, to);
+    int end = lastWord(start, to);
+    super.equal(values, target, from, start, words);
+    for (int i = start; i < end; i += 64) {
+      long word = 0;
+      for (int j = 0; j < 64; j += LONGS.length())
+        word |= longBits(LongVector.fromArray(LONGS, values, i + j).eq(target)) << j;
+      words[i >>> 6] |= word;
+    }
+    super.equal(values, target, end, to, words);
+  }
+
+  @Override
+  public void range(int[] values, int low, int high, int from, int to, long[] words) {
+    int start = firstWord(from, to);
+    int end = lastWord(start, to);
+    super.range(values, low, high, from, start, words);
+    for (int i = start; i < end; i += 64) {
+      long word = 0;
+      for (int j = 0; j < 64; j += INTS.length()) {
+        IntVector v = IntVector.fromArray(INTS, values, i + j);
+        word |=
+            bits(v.compare(VectorOperators.GE, low).and(v.compare(VectorOperators.LE, high))) << j;
+      }
+      words[i >>> 6] |= word;
+    }
+    super.range(values, low, high, end, to, words);
+  }
+
+  @Override
+  public void range(long[] values, long low, long high, int from, int to, long[] words) {
+    int start = firstWord(from, to);
+    int end = lastWord(start, to);
+    super.range(values, low, high, from, start, words);
+    for (int i = start; i < end; i += 64) {
+      long word = 0;
+      for (int j = 0; j < 64; j += LONGS.length()) {
+        LongVector v = LongVector.fromArray(LONGS, values, i + j);
+        word |=
+            longBits(v.compare(VectorOperators.GE, low).and(v.compare(VectorOperators.LE, high)))
+                << j;
+      }
+      words[i >>> 6] |= word;
+    }
+    super.range(values, low, high, end, to, words);
+  }
+
+  @Override
+  public void range(double[] values, NumericRange range, int from, int to, long[] words) {
+    int start = firstWord(from, to);
+    int end = lastWord(start, to);
+    super.range(values, range, from, start, words);
+    // x > low is x >= the next double up, so both bounds are inclusive: the compiler only turns
+    // comparisons with a constant operator into vector instructions
+    double low = range.lowDoubleInclusive ? range.lowDouble : Math.nextUp(range.lowDouble);
+    double high = range.highDoubleInclusive ? range.highDouble : Math.nextDown(range.highDouble);
+    for (int i = start; i < end; i += 64) {
+      long word = 0;
+      for (int j = 0; j < 64; j += DOUBLES.length()) {
+        DoubleVector v = DoubleVector.fromArray(DOUBLES, values, i + j);
+        VectorMask<Double> match =
+            v.compare(VectorOperators.GE, low).and(v.compare(VectorOperators.LE, high));
+        word |= doubleBits(match) << j;
+      }
+      words[i >>> 6] |= word;
+    }
+    super.range(values, range, end, to, words);
+  }
+}
@@ -1,8 +1,13 @@
 package edu.brown.cs32.student.server;
 
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
 import java.util.Map;
 import okio.BufferedSource;
 
@@ -12,6 +17,20 @@ import okio.BufferedSource;
  * @param responseMap
  */
 public record GeneralResponse(Map<String, Object> responseMap) {
+  /** exact numbers, like a sum past the range of a long, written as Json numbers */
+  private static final JsonAdapter<BigDecimal> BIG_DECIMAL =
+      new JsonAdapter<>() {
+        @Override
+        public BigDecimal fromJson(JsonReader reader) throws IOException {
+          return new BigDecimal(reader.nextString());
+        }
+
+        @Override
+        public void toJson(JsonWriter writer, BigDecimal value) throws IOException {
+          writer.value(value);
+        }
+      };
+
   /** constructor */
   public GeneralResponse() {
     this(null);
@@ -21,7 +40,7 @@ public record GeneralResponse(Map<String, Object> responseMap) {
    */
   public String serialize() throws Exception {
     try {
-      Moshi moshi = new Moshi.Builder().build();
+      Moshi moshi = new Moshi.Builder().add(BigDecimal.class, BIG_DECIMAL).build();
       Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
       return moshi.adapter(type).toJson(responseMap);
     } catch (Exception e) {
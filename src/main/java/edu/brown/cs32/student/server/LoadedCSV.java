@@ -0,0 +1,87 @@
+package edu.brown.cs32.student.server;
+
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+
+/**
+ * The CSV table shared by the csv endpoints. A load replaces the whole table, together with its
+ * index, at once, so a request always sees one consistent table, and bumps the version so anything
+ * derived from the old table can tell it is stale.
+ */
+public class LoadedCSV {
+  private volatile Snapshot current = new Snapshot(null, null, 0);
+
+  /**
+   * A loaded table together with its index and version
+   *
+   * @param table the table, or null if nothing is loaded
+   * @param index the table's index, or null if it was loaded without one
+   * @param version the number of loads that produced it
+   */
+  public record Snapshot(Table table, TableIndex index, long version) {
+    /**
+     * @return true if no table is loaded, or the loaded one has no rows
+     */
+    public boolean isEmpty() {
+      return table == null || table.rowCount() == 0;
+    }
+  }
+
+  /**
+   * @return the current table and its version, read together
+   */
+  public Snapshot snapshot() {
+    return current;
+  }
+
+  /**
+   * Table getter
+   *
+   * @return the loaded table, or null if nothing is loaded
+   */
+  public Table getTable() {
+    return current.table();
+  }
+
+  /**
+   * Index getter
+   *
+   * @return the loaded table's index, or null if there is none
+   */
+  public TableIndex getIndex() {
+    return current.index();
+  }
+
+  /**
+   * @return the number of loads so far; changes whenever the table is replaced
+   */
+  public long getVersion() {
+    return current.version();
+  }
+
+  /**
+   * Replace the loaded table, dropping the old index
+   *
+   * @param table the new table
+   */
+  public void setTable(Table table) {
+    setTable(table, null);
+  }
+
+  /**
+   * Replace the loaded table and its index
+   *
+   * @param table the new table
+   * @param index the new table's index, or null
+   */
+  public synchronized void setTable(Table table, TableIndex index) {
+    current = new Snapshot(table, index, current.version() + 1);
+  }
+
+  /**
+   * @return true if no table is loaded, or the loaded one has no rows
+   */
+  public boolean isEmpty() {
+    return current.isEmpty();
+  }
+}
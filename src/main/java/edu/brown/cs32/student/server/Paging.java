@@ -0,0 +1,85 @@
+package edu.brown.cs32.student.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The page a `/viewcsv` or `/searchcsv` request asks for, from its `limit`, `offset` and `cursor`
+ * parameters. A cursor names the row the next page starts from and the dataset version it belongs
+ * to, so it is refused once another file is loaded instead of paging through different data.
+ *
+ * @param from the first row to read
+ * @param offset how many rows, or matching rows, to skip after `from`
+ * @param limit how many rows to return at most
+ */
+public record Paging(int from, int offset, int limit) {
+  /** every row at once, as a request without paging parameters gets */
+  public static final Paging ALL = new Paging(0, 0, Integer.MAX_VALUE);
+
+  /**
+   * @return true if the request asks for a part of the rows
+   */
+  public boolean isPaged() {
+    return !equals(ALL);
+  }
+
+  /**
+   * Read the paging parameters of a request
+   *
+   * @param limit the `limit` parameter, or null for no limit
+   * @param offset the `offset` parameter, or null for 0
+   * @param cursor the `cursor` parameter, or null to start from the first row
+   * @param loaded the data the request reads
+   * @return the page to return
+   * @throws IllegalArgumentException if a parameter is invalid, or the cursor is for another load
+   */
+  public static Paging parse(String limit, String offset, String cursor, LoadedCSV.Snapshot loaded)
+      throws IllegalArgumentException {
+    int max = limit == null ? Integer.MAX_VALUE : number("limit", limit, 1);
+    int skip = offset == null ? 0 : number("offset", offset, 0);
+    int from = cursor == null ? 0 : decode(cursor, loaded);
+    return new Paging(from, skip, max);
+  }
+
+  private static int number(String name, String value, int min) {
+    try {
+      int ret = Integer.parseInt(value);
+      if (ret >= min) return ret;
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException(
+        name + " should be an integer of at least " + min + ", but get " + value);
+  }
+
+  /**
+   * @param version the dataset version the rows belong to
+   * @param row the row the next page starts from
+   * @return the cursor of the next page
+   */
+  public static String cursor(long version, int row) {
+    String text = version + ":" + row;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static int decode(String cursor, LoadedCSV.Snapshot loaded) {
+    long version;
+    int row;
+    try {
+      String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int colon = text.indexOf(':');
+      version = Long.parseLong(text.substring(0, colon));
+      row = Integer.parseInt(text.substring(colon + 1));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("cursor is not valid: " + cursor);
+    }
+    if (version != loaded.version())
+      throw new IllegalArgumentException(
+          "cursor belongs to an earlier load of the data, start again without it");
+    if (row < 0 || row > loaded.table().rowCount())
+      throw new IllegalArgumentException("cursor is not valid: " + cursor);
+    return row;
+  }
+}
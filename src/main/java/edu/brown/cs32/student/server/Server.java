@@ -1,13 +1,18 @@
 package edu.brown.cs32.student.server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
+import edu.brown.cs32.student.csv.search.ParallelScan;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
+import edu.brown.cs32.student.server.aggregatecsv.AggregateCSVHandler;
+import edu.brown.cs32.student.server.cachestats.CacheStatsHandler;
 import edu.brown.cs32.student.server.loadcsv.LoadCSVHandler;
+import edu.brown.cs32.student.server.searchcsv.BatchSearchCSVHandler;
 import edu.brown.cs32.student.server.searchcsv.SearchCSVHandler;
+import edu.brown.cs32.student.server.searchcsv.SearchResultCache;
 import edu.brown.cs32.student.server.viewcsv.ViewCSVHandler;
 import edu.brown.cs32.student.server.weather.WeatherHandler;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
 import spark.Spark;
 
 /**
@@ -19,9 +24,24 @@ import spark.Spark;
  * functionality classes, etc. we could make sure they all had the same shared state.
  */
 public class Server {
+  /** how many compiled queries to keep */
+  private static final int PLAN_CACHE_SIZE = 1024;
+
+  /** most threads one scan or aggregation may use, so a big query leaves the rest to others */
+  private static final int SCAN_PARALLELISM =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  /** how many search responses to keep */
+  private static final int RESULT_CACHE_SIZE = 256;
+  /** how many bytes of search responses to keep */
+  private static final long RESULT_CACHE_BYTES = 64L << 20;
+
   public static void main(String[] args) {
-    List<List<String>> csvData = new ArrayList<>();
-    List<String> csvHeader = new ArrayList<>();
+    LoadedCSV csv = new LoadedCSV();
+    // the csv handlers share the compiled queries and the scan pool
+    QueryPlanCache plans = new QueryPlanCache(PLAN_CACHE_SIZE);
+    ParallelScan scanner = new ParallelScan(SCAN_PARALLELISM);
+    SearchResultCache results = new SearchResultCache(RESULT_CACHE_SIZE, RESULT_CACHE_BYTES);
     //    boolean hasHead = true;
     Spark.port(3232);
     /*
@@ -40,17 +60,23 @@ public class Server {
        We recommend you learn more about CORS with these resources:
            - https://developer.mozilla.org/en-US/docs/Web/HTTP/CORS
            - https://portswigger.net/web-security/cors
+
+       The headers are set before the handlers run: viewcsv and searchcsv stream their responses,
+       which sends the headers before the handler returns.
     */
-    after(
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "*");
           response.header("Access-Control-Allow-Methods", "*");
         });
 
     // Setting up the handler for the GET /order endpoint
-    Spark.get("loadcsv", new LoadCSVHandler(csvData, csvHeader));
-    Spark.get("viewcsv", new ViewCSVHandler(csvData, csvHeader));
-    Spark.get("searchcsv", new SearchCSVHandler(csvData, csvHeader));
+    Spark.get("loadcsv", new LoadCSVHandler(csv, Path.of("data/.snapshots")));
+    Spark.get("viewcsv", new ViewCSVHandler(csv));
+    Spark.get("searchcsv", new SearchCSVHandler(csv, plans, scanner, results));
+    Spark.post("batchsearchcsv", new BatchSearchCSVHandler(csv, plans, scanner));
+    Spark.get("aggregatecsv", new AggregateCSVHandler(csv, plans, scanner));
+    Spark.get("cachestats", new CacheStatsHandler(plans, results));
     Spark.get("weather", new WeatherHandler());
     Spark.init();
     Spark.awaitInitialization();
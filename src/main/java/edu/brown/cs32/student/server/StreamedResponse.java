@@ -0,0 +1,141 @@
+package edu.brown.cs32.student.server;
+
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import edu.brown.cs32.student.csv.table.Table;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import okio.Okio;
+import spark.Response;
+
+/**
+ * A Json object written straight to the client as it is produced, for responses holding rows of the
+ * table. Each row is written from the table's cells and sent on once a buffer fills, so a response
+ * takes the same memory however many rows it holds; its length is not known up front, so the server
+ * sends it with chunked transfer encoding. Errors found before the first field still go through
+ * `GeneralResponse`, as nothing can be taken back once the response is streaming.
+ */
+public final class StreamedResponse implements AutoCloseable {
+  private static final Moshi MOSHI = new Moshi.Builder().build();
+
+  private final JsonWriter writer;
+  private final Capture capture;
+
+  /**
+   * Start the response
+   *
+   * @param response the response to write to
+   * @param captureLimit how many bytes of the response to also keep, for `captured`; 0 for none
+   * @throws IOException if the client cannot be written to
+   */
+  public StreamedResponse(Response response, int captureLimit) throws IOException {
+    OutputStream out = response.raw().getOutputStream();
+    this.capture = captureLimit > 0 ? new Capture(out, captureLimit) : null;
+    this.writer = JsonWriter.of(Okio.buffer(Okio.sink(capture == null ? out : capture)));
+    writer.beginObject();
+  }
+
+  /**
+   * Write a field
+   *
+   * @param name the field's name
+   * @param value the value, serialized by Moshi; a null value leaves the field out
+   * @throws IOException if the client cannot be written to
+   */
+  public void field(String name, Object value) throws IOException {
+    if (value == null) return;
+    writer.name(name);
+    MOSHI.adapter(Object.class).toJson(writer, value);
+  }
+
+  /**
+   * Start a field holding a list of rows, written by `row`
+   *
+   * @param name the field's name
+   * @throws IOException if the client cannot be written to
+   */
+  public void beginRows(String name) throws IOException {
+    writer.name(name).beginArray();
+  }
+
+  /**
+   * Write a row of the table, without making a list of its cells
+   *
+   * @throws IOException if the client cannot be written to
+   */
+  public void row(Table table, int row) throws IOException {
+    writer.beginArray();
+    for (int c = 0; c < table.columnCount(); c++) writer.value(table.get(row, c));
+    writer.endArray();
+  }
+
+  /**
+   * Write a row of text
+   *
+   * @throws IOException if the client cannot be written to
+   */
+  public void row(List<String> cells) throws IOException {
+    writer.beginArray();
+    for (String cell : cells) writer.value(cell);
+    writer.endArray();
+  }
+
+  /**
+   * End the field started by `beginRows`
+   *
+   * @throws IOException if the client cannot be written to
+   */
+  public void endRows() throws IOException {
+    writer.endArray();
+  }
+
+  /**
+   * End the response and send what is left of it
+   *
+   * @throws IOException if the client cannot be written to
+   */
+  @Override
+  public void close() throws IOException {
+    writer.endObject();
+    writer.flush();
+  }
+
+  /**
+   * @return the whole response once closed, or null if it was longer than the capture limit
+   */
+  public byte[] captured() {
+    return capture == null || capture.copy == null ? null : capture.copy.toByteArray();
+  }
+
+  /** Pass bytes on to the client, keeping a copy of them until there are too many */
+  private static final class Capture extends OutputStream {
+    private final OutputStream out;
+    private final int limit;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    Capture(OutputStream out, int limit) {
+      this.out = out;
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      if (copy == null) return;
+      if (copy.size() + len > limit) copy = null;
+      else copy.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package edu.brown.cs32.student.server.aggregatecsv;
+
+import edu.brown.cs32.student.csv.exception.NoHeaderException;
+import edu.brown.cs32.student.csv.search.Aggregation;
+import edu.brown.cs32.student.csv.search.ParallelScan;
+import edu.brown.cs32.student.csv.search.QueryPlan;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
+import edu.brown.cs32.student.csv.search.Search;
+import edu.brown.cs32.student.server.GeneralResponse;
+import edu.brown.cs32.student.server.LoadedCSV;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Handler of the `/aggregatecsv` endpoint: counts, distinct counts, sums, minimums, maximums and
+ * means of the loaded rows, optionally only of the rows matching a search query and per group of a
+ * column's values. The rows are aggregated on the server in one pass, so the response holds the
+ * aggregates instead of the rows.
+ */
+public class AggregateCSVHandler implements Route {
+  private final LoadedCSV csv;
+  private final QueryPlanCache plans;
+  private final ParallelScan scanner;
+
+  /**
+   * Constructor accepts some shared state
+   *
+   * @param csv the shared loaded CSV table
+   * @param plans the cache of compiled queries, shared with the other csv handlers
+   * @param scanner the shared pool to aggregate and scan on, and how much of it one request may use
+   */
+  public AggregateCSVHandler(LoadedCSV csv, QueryPlanCache plans, ParallelScan scanner) {
+    this.csv = csv;
+    this.plans = plans;
+    this.scanner = scanner;
+  }
+
+  /**
+   * Aggregate the rows of a loaded csv file
+   *
+   * @param request the request to handle
+   * @param response use to modify properties of the response
+   * @return response content
+   * @throws Exception This is part of the interface; we don't have to throw anything.
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    String aggregates = request.queryParams("aggregates");
+    String groupBy = request.queryParams("groupby");
+    String query = request.queryParams("query");
+    String insensitive = request.queryParams("insensitive");
+    HashMap<String, Object> result = new HashMap<>();
+    LoadedCSV.Snapshot loaded = csv.snapshot();
+    if (loaded.table() == null) {
+      result.put("result", "error_bad_request");
+      result.put("detail", "No CSV data loaded");
+      return new GeneralResponse(result).serialize();
+    }
+
+    try {
+      if (insensitive != null && !insensitive.equals("true") && !insensitive.equals("false")) {
+        result.put("result", "error_bad_request");
+        result.put("detail", "insensitive should be either true or false, but get " + insensitive);
+        return new GeneralResponse(result).serialize();
+      }
+      AggregateCSVRequest req = new AggregateCSVRequest(aggregates, groupBy, query, insensitive);
+      Search srh = new Search(loaded.table(), loaded.index(), scanner);
+      Aggregation aggregation =
+          srh.compileAggregation(aggregates == null ? "count" : aggregates, groupBy);
+      QueryPlan filter =
+          query == null
+              ? null
+              : plans.get(query, "true".equals(insensitive), loaded.version(), srh);
+      List<Map<String, Object>> groups = srh.aggregate(aggregation, filter);
+      result.put("request", req);
+      result.put("aggregate result", groupBy == null ? groups.get(0) : groups);
+
+    } catch (IllegalArgumentException e) {
+      result.put("result", "error_bad_request");
+      result.put("detail", e.getMessage());
+
+    } catch (NoHeaderException e) {
+      result.put("result", "error_datasource");
+      result.put("detail", e.getMessage());
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return new GeneralResponse(result).serialize();
+  }
+
+  /**
+   * @param aggregates the aggregates, or null to count the rows
+   * @param groupby the column to group by, or null
+   * @param query the query the rows must match, or null for every row
+   * @param insensitive "true" to compare text ignoring case and accents, or null
+   */
+  public record AggregateCSVRequest(
+      String aggregates, String groupby, String query, String insensitive) {}
+}
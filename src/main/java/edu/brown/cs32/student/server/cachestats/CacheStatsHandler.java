@@ -0,0 +1,57 @@
+package edu.brown.cs32.student.server.cachestats;
+
+import com.google.common.cache.CacheStats;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
+import edu.brown.cs32.student.server.GeneralResponse;
+import edu.brown.cs32.student.server.searchcsv.SearchResultCache;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Handler of the `/cachestats` endpoint: the hit and miss counts of the caches the csv handlers
+ * share, counted since the server started.
+ */
+public class CacheStatsHandler implements Route {
+  private final QueryPlanCache plans;
+  private final SearchResultCache results;
+
+  /**
+   * Constructor accepts some shared state
+   *
+   * @param plans the cache of compiled queries
+   * @param results the cache of serialized `/searchcsv` responses
+   */
+  public CacheStatsHandler(QueryPlanCache plans, SearchResultCache results) {
+    this.plans = plans;
+    this.results = results;
+  }
+
+  /**
+   * Report the statistics of the caches
+   *
+   * @param request the request to handle
+   * @param response use to modify properties of the response
+   * @return response content
+   * @throws Exception This is part of the interface; we don't have to throw anything.
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    HashMap<String, Object> result = new HashMap<>();
+    result.put("search results", toMap(results.stats()));
+    result.put("query plans", toMap(plans.stats()));
+    return new GeneralResponse(result).serialize();
+  }
+
+  private static Map<String, Object> toMap(CacheStats stats) {
+    Map<String, Object> ret = new LinkedHashMap<>();
+    ret.put("hits", stats.hitCount());
+    ret.put("misses", stats.missCount());
+    ret.put("hit rate", stats.hitRate());
+    ret.put("evictions", stats.evictionCount());
+    return ret;
+  }
+}
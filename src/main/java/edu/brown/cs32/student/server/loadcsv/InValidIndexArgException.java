@@ -0,0 +1,7 @@
+package edu.brown.cs32.student.server.loadcsv;
+
+public class InValidIndexArgException extends Exception {
+  public InValidIndexArgException(String err) {
+    super(err);
+  }
+}
@@ -0,0 +1,7 @@
+package edu.brown.cs32.student.server.loadcsv;
+
+public class InValidTypesArgException extends Exception {
+  public InValidTypesArgException(String err) {
+    super(err);
+  }
+}
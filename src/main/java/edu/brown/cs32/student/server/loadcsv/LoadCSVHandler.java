@@ -1,12 +1,22 @@
 package edu.brown.cs32.student.server.loadcsv;
 
-import edu.brown.cs32.student.csv.creator.StringListCreator;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
 import edu.brown.cs32.student.csv.parser.CSVParser;
+import edu.brown.cs32.student.csv.parser.MappedCSVReader;
+import edu.brown.cs32.student.csv.parser.ParallelCSVParser;
+import edu.brown.cs32.student.csv.table.ColumnType;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+import edu.brown.cs32.student.csv.table.TableSnapshot;
 import edu.brown.cs32.student.server.GeneralResponse;
+import edu.brown.cs32.student.server.LoadedCSV;
 import edu.brown.cs32.student.server.MissingArgException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import spark.Request;
@@ -22,20 +32,35 @@ import spark.utils.StringUtils;
  * complex, but this should serve as a reference.
  */
 public class LoadCSVHandler implements Route {
-  private final List<List<String>> csvData;
-  private final List<String> csvHeader;
+  private final LoadedCSV csv;
   private final String PREFIX = "data/";
-  //
-  //    /**
-  //     * Constructor accepts some shared state
-  //     * @param csvData the shared csvData (exclude Header if csv has head)
-  //     * @param csvHeader the shared csvHeader
-  //     *
-  //     */
+  /**
+   * files at least this large are parsed on all cores; below it, splitting the file and merging the
+   * chunks costs more than the extra cores save
+   */
+  private static final long PARALLEL_THRESHOLD = 4L << 20;
+  /** where table snapshots are kept, or null to always parse */
+  private final Path snapshotDir;
+
+  /**
+   * Constructor accepts some shared state
+   *
+   * @param csv the shared loaded CSV table, replaced on every successful load
+   */
+  public LoadCSVHandler(LoadedCSV csv) {
+    this(csv, null);
+  }
 
-  public LoadCSVHandler(List<List<String>> csvData, List<String> csvHeader) {
-    this.csvData = csvData;
-    this.csvHeader = csvHeader;
+  /**
+   * Constructor keeping a binary snapshot of every parsed file, so reloading a file that has not
+   * changed maps the snapshot instead of parsing the text
+   *
+   * @param csv the shared loaded CSV table, replaced on every successful load
+   * @param snapshotDir the directory holding the snapshots
+   */
+  public LoadCSVHandler(LoadedCSV csv, Path snapshotDir) {
+    this.csv = csv;
+    this.snapshotDir = snapshotDir;
   }
 
   /**
@@ -50,6 +75,8 @@ public class LoadCSVHandler implements Route {
   public Object handle(Request request, Response response) throws Exception {
     String fileName = request.queryParams("filepath");
     String header = request.queryParams("header");
+    String types = request.queryParams("types");
+    String index = request.queryParams("index");
     HashMap<String, Object> result = new HashMap<>();
 
     try {
@@ -62,21 +89,22 @@ public class LoadCSVHandler implements Route {
         throw new InValidHeaderArgException(
             "header should be either true or false, but get " + header);
 
+      ColumnType[] columnTypes = parseTypes(types);
+      if (index != null && !index.equals("false") && !index.equals("true") && !index.equals("text"))
+        throw new InValidIndexArgException("index should be true, false or text, but get " + index);
+      boolean buildIndex = !"false".equals(index);
+      boolean textIndex = "text".equals(index);
+
       // limit the filepath only this folder.
       String file = PREFIX + fileName;
 
-      FileReader reader = new FileReader(file);
       if (header.equals("true")) {
-        CSVParser<List<String>> parser =
-            new CSVParser(header.equals("true"), reader, new StringListCreator());
-        parser.parse(csvData, csvHeader);
+        load(file, header.equals("true"), columnTypes, buildIndex, textIndex);
       } else if (header.equals("false")) {
-        CSVParser<List<String>> parser =
-            new CSVParser(header.equals("false"), reader, new StringListCreator());
-        parser.parse(csvData, csvHeader);
+        load(file, header.equals("false"), columnTypes, buildIndex, textIndex);
       }
       result.put("result", "success");
-      result.put("request", new LoadCSVRequest(fileName, header));
+      result.put("request", new LoadCSVRequest(fileName, header, types, index));
       result.put("detail", "Successfully loaded file: " + fileName);
       return new GeneralResponse(result).serialize();
 
@@ -86,9 +114,12 @@ public class LoadCSVHandler implements Route {
     } catch (IOException e) {
       result.put("result", "error_datasource");
       result.put("detail", "Fail to load file: " + fileName);
-    } catch (InValidHeaderArgException e) {
+    } catch (InValidHeaderArgException | InValidTypesArgException | InValidIndexArgException e) {
       result.put("result", "error_bad_request");
       result.put("detail", e.getMessage());
+    } catch (WrongFormatCSVException e) {
+      result.put("result", "error_datasource");
+      result.put("detail", e.getMessage());
     } catch (Exception e) {
       // open file failed, error
       e.printStackTrace();
@@ -97,6 +128,83 @@ public class LoadCSVHandler implements Route {
     return new GeneralResponse(result).serialize();
   }
 
-  public record LoadCSVRequest(String filepath, String header) {}
+  /**
+   * Parse the optional `types` param, a comma-separated list with one of int, long, double, string
+   * or auto (inferred from the cells) per column
+   *
+   * @param types the param, may be blank
+   * @return the declared types, null entries for auto, or null if the param is blank
+   */
+  private static ColumnType[] parseTypes(String types) throws InValidTypesArgException {
+    if (StringUtils.isBlank(types)) return null;
+    String[] names = types.split(",", -1);
+    ColumnType[] ret = new ColumnType[names.length];
+    for (int i = 0; i < names.length; i++) {
+      String name = names[i].trim().toUpperCase();
+      if (name.equals("AUTO")) continue;
+      try {
+        ret[i] = ColumnType.valueOf(name);
+      } catch (IllegalArgumentException e) {
+        throw new InValidTypesArgException(
+            "types should be int, long, double, string or auto, but get " + names[i]);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Load a file into a table and replace the shared one, and its index, with it
+   *
+   * @param file the path of the file
+   * @param hasHead whether the first row is kept as the header
+   * @param types the declared column types, or null to infer them all
+   * @param buildIndex whether to index every column for searches
+   * @param textIndex whether to also index text columns for substring, prefix and fuzzy searches
+   */
+  private void load(
+      String file, boolean hasHead, ColumnType[] types, boolean buildIndex, boolean textIndex)
+      throws Exception {
+    Table table = read(Path.of(file), hasHead, types);
+    csv.setTable(table, buildIndex ? TableIndex.build(table, textIndex) : null);
+  }
+
+  /**
+   * Read a file into a table. An up-to-date snapshot is used if there is one; otherwise the file is
+   * parsed and a snapshot written for next time. A file whose snapshot would fall outside the
+   * snapshot directory, like one named with `../`, is always parsed.
+   */
+  private Table read(Path path, boolean hasHead, ColumnType[] types) throws Exception {
+    if (snapshotDir == null) return parse(path, hasHead, types);
+    Path dir = snapshotDir.toAbsolutePath().normalize();
+    Path snapshot = dir.resolve(path.normalize() + ".snap").normalize();
+    if (!snapshot.startsWith(dir) || snapshot.equals(dir)) return parse(path, hasHead, types);
+    String options = "header=" + hasHead + ";types=" + Arrays.toString(types);
+    Table table = TableSnapshot.read(snapshot, path, options);
+    if (table == null) {
+      table = parse(path, hasHead, types);
+      try {
+        TableSnapshot.write(table, snapshot, path, options);
+      } catch (IOException e) {
+        // the load itself succeeded; the file is just parsed again next time
+        e.printStackTrace();
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Parse a file into a table, decoding UTF-8 straight from a memory mapping of the file and using
+   * all cores if it is large
+   */
+  private static Table parse(Path path, boolean hasHead, ColumnType[] types) throws Exception {
+    if (Files.size(path) >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+      return new ParallelCSVParser<>(hasHead, path).parseTable(types);
+    }
+    try (Reader reader = new MappedCSVReader(path)) {
+      return new CSVParser<>(hasHead, reader).parseTable(types);
+    }
+  }
+
+  public record LoadCSVRequest(String filepath, String header, String types, String index) {}
   ;
 }
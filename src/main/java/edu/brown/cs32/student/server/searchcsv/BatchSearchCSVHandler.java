@@ -0,0 +1,111 @@
+package edu.brown.cs32.student.server.searchcsv;
+
+import edu.brown.cs32.student.csv.exception.NoHeaderException;
+import edu.brown.cs32.student.csv.search.ParallelScan;
+import edu.brown.cs32.student.csv.search.QueryPlan;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
+import edu.brown.cs32.student.csv.search.Search;
+import edu.brown.cs32.student.server.GeneralResponse;
+import edu.brown.cs32.student.server.LoadedCSV;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Handler of the POST `/batchsearchcsv` endpoint: many searches in one request. The body is a Json
+ * object with a list of `queries` and an optional `insensitive` flag. The queries are evaluated
+ * together, so the scans they share run once, in one pass over each column, and the response holds
+ * one result per query, in order. A query that fails to compile gets its own error without failing
+ * the others.
+ */
+public class BatchSearchCSVHandler implements Route {
+  private final LoadedCSV csv;
+  private final QueryPlanCache plans;
+  private final ParallelScan scanner;
+
+  /**
+   * Constructor accepts some shared state
+   *
+   * @param csv the shared loaded CSV table
+   * @param plans the cache of compiled queries, shared with the other csv handlers
+   * @param scanner the shared pool for scans without an index, and how much of it one batch may use
+   */
+  public BatchSearchCSVHandler(LoadedCSV csv, QueryPlanCache plans, ParallelScan scanner) {
+    this.csv = csv;
+    this.plans = plans;
+    this.scanner = scanner;
+  }
+
+  /**
+   * Search in a loaded csv file with every query of the body
+   *
+   * @param request the request to handle
+   * @param response use to modify properties of the response
+   * @return response content
+   * @throws Exception This is part of the interface; we don't have to throw anything.
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    HashMap<String, Object> result = new HashMap<>();
+    LoadedCSV.Snapshot loaded = csv.snapshot();
+    if (loaded.isEmpty()) {
+      result.put("result", "error_bad_request");
+      result.put("detail", "No CSV data loaded");
+      return new GeneralResponse(result).serialize();
+    }
+
+    List<String> queries = new ArrayList<>();
+    Object insensitive;
+    try {
+      Map<String, Object> body =
+          new GeneralResponse().deserialize(new Buffer().writeUtf8(request.body())).responseMap();
+      if (!(body.get("queries") instanceof List<?> list)) throw new IllegalArgumentException();
+      for (Object query : list) {
+        if (!(query instanceof String text)) throw new IllegalArgumentException();
+        queries.add(text);
+      }
+      insensitive = body.getOrDefault("insensitive", false);
+      if (!(insensitive instanceof Boolean)) throw new IllegalArgumentException();
+    } catch (Exception e) {
+      result.put("result", "error_bad_request");
+      result.put(
+          "detail",
+          "Body should be a Json object with a list of queries, like"
+              + " {\"queries\": [\"Sol\"], \"insensitive\": false}");
+      return new GeneralResponse(result).serialize();
+    }
+
+    // compile every query, keeping the error of each one that fails
+    Search srh = new Search(loaded.table(), loaded.index(), scanner);
+    List<Object> results = new ArrayList<>(queries.size());
+    List<QueryPlan> compiled = new ArrayList<>();
+    List<Map<String, Object>> found = new ArrayList<>();
+    for (String query : queries) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("query", query);
+      try {
+        compiled.add(plans.get(query, (Boolean) insensitive, loaded.version(), srh));
+        found.add(entry);
+      } catch (IllegalArgumentException e) {
+        entry.put("result", "error_bad_request");
+        entry.put("detail", e.getMessage());
+      } catch (NoHeaderException e) {
+        entry.put("result", "error_datasource");
+        entry.put("detail", e.getMessage());
+      }
+      results.add(entry);
+    }
+
+    List<List<List<String>>> rows = srh.search(compiled);
+    for (int i = 0; i < rows.size(); i++) found.get(i).put("search result", rows.get(i));
+    result.put("insensitive", insensitive);
+    result.put("search results", results);
+    return new GeneralResponse(result).serialize();
+  }
+}
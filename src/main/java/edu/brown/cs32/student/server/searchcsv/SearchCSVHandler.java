@@ -1,11 +1,21 @@
 package edu.brown.cs32.student.server.searchcsv;
 
 import edu.brown.cs32.student.csv.exception.NoHeaderException;
+import edu.brown.cs32.student.csv.search.ParallelScan;
+import edu.brown.cs32.student.csv.search.Profile;
+import edu.brown.cs32.student.csv.search.QueryPlan;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
 import edu.brown.cs32.student.csv.search.Search;
+import edu.brown.cs32.student.csv.table.Table;
 import edu.brown.cs32.student.server.GeneralResponse;
+import edu.brown.cs32.student.server.LoadedCSV;
 import edu.brown.cs32.student.server.MissingArgException;
+import edu.brown.cs32.student.server.Paging;
+import edu.brown.cs32.student.server.StreamedResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.List;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -18,20 +28,29 @@ import spark.Route;
  * complex, but this should serve as a reference.
  */
 public class SearchCSVHandler implements Route {
-  private final List<List<String>> csvData;
-  private final List<String> csvHeader;
+  private final LoadedCSV csv;
   private final String PREFIX = "data/";
 
+  private final QueryPlanCache plans;
+  private final ParallelScan scanner;
+  private final SearchResultCache results;
+
   /**
    * Constructor accepts some shared state
    *
-   * @param csvData the shared csvData (exclude Header if csv has head)
-   * @param csvHeader the shared csvHeader
+   * @param csv the shared loaded CSV table
+   * @param plans the cache of compiled queries
+   * @param scanner the shared pool for scans without an index, and how much of it one query may use
+   * @param results the cache of serialized responses
    */
-  public SearchCSVHandler(List<List<String>> csvData, List<String> csvHeader) {
-    this.csvData = csvData;
-    this.csvHeader = csvHeader;
+  public SearchCSVHandler(
+      LoadedCSV csv, QueryPlanCache plans, ParallelScan scanner, SearchResultCache results) {
+    this.csv = csv;
+    this.plans = plans;
+    this.scanner = scanner;
+    this.results = results;
   }
+
   /**
    * Search in a loaded csv file
    *
@@ -43,8 +62,15 @@ public class SearchCSVHandler implements Route {
   @Override
   public Object handle(Request request, Response response) throws Exception {
     String query = request.queryParams("query");
+    String insensitive = request.queryParams("insensitive");
+    String limit = request.queryParams("limit");
+    String offset = request.queryParams("offset");
+    String cursor = request.queryParams("cursor");
+    String explain = request.queryParams("explain");
     HashMap<String, Object> result = new HashMap<>();
-    if (csvData.isEmpty()) {
+    LoadedCSV.Snapshot loaded = csv.snapshot();
+    Table table = loaded.table();
+    if (loaded.isEmpty()) {
       result.put("result", "error_bad_request");
       result.put("detail", "No CSV data loaded");
       return new GeneralResponse(result).serialize();
@@ -56,11 +82,67 @@ public class SearchCSVHandler implements Route {
         result.put("detail", "Need query field to search.");
         return new GeneralResponse(result).serialize();
       }
-      Search srh = new Search(!csvHeader.isEmpty(), csvHeader, csvData);
-      result.put("request", new SearchCSVRequest(query));
-      List<List<String>> res = srh.search(query);
-      result.put("search result", res);
-      return new GeneralResponse(result).serialize();
+      if (insensitive != null && !insensitive.equals("true") && !insensitive.equals("false")) {
+        result.put("result", "error_bad_request");
+        result.put("detail", "insensitive should be either true or false, but get " + insensitive);
+        return new GeneralResponse(result).serialize();
+      }
+      if (explain != null && !explain.equals("true") && !explain.equals("false")) {
+        result.put("result", "error_bad_request");
+        result.put("detail", "explain should be either true or false, but get " + explain);
+        return new GeneralResponse(result).serialize();
+      }
+      Paging paging = Paging.parse(limit, offset, cursor, loaded);
+      SearchCSVRequest req =
+          new SearchCSVRequest(query, insensitive, limit, offset, cursor, explain);
+      boolean explained = "true".equals(explain);
+      // an explained run is timed anew every time
+      byte[] cached = explained ? null : results.get(loaded.version(), req);
+      if (cached != null) return cached;
+      Search srh = new Search(table, loaded.index(), scanner);
+      result.put("request", req);
+      QueryPlan plan = plans.get(query, "true".equals(insensitive), loaded.version(), srh);
+      if (explained) {
+        Profile.Step root = srh.explain(plan).root();
+        result.put("plan", plan.toString());
+        result.put("explain", root.toMap());
+        return new GeneralResponse(result).serialize();
+      }
+      // with the plan compiled, nothing can fail while the response streams
+      BitSet rows = paging.isPaged() ? null : srh.searchRows(plan);
+      StreamedResponse out;
+      try {
+        out = new StreamedResponse(response, results.maxEntryBytes());
+        out.field("request", req);
+        out.beginRows("search result");
+        int next = -1;
+        if (paging.isPaged()) {
+          next =
+              srh.searchPage(
+                  plan,
+                  paging.from(),
+                  paging.offset(),
+                  paging.limit(),
+                  r -> {
+                    try {
+                      out.row(table, r);
+                    } catch (IOException e) {
+                      throw new UncheckedIOException(e);
+                    }
+                  });
+        } else {
+          for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) out.row(table, r);
+        }
+        out.endRows();
+        if (next >= 0) out.field("next cursor", Paging.cursor(loaded.version(), next));
+        out.close();
+      } catch (IOException | UncheckedIOException e) {
+        // the client went away; there is nobody left to tell
+        return "";
+      }
+      byte[] json = out.captured();
+      if (json != null) results.put(loaded.version(), req, json);
+      return "";
 
     } catch (MissingArgException | IllegalArgumentException e) {
       result.put("result", "error_bad_request");
@@ -75,6 +157,20 @@ public class SearchCSVHandler implements Route {
     return new GeneralResponse(result).serialize();
   }
 
-  public record SearchCSVRequest(String query) {}
+  /**
+   * @param query the query
+   * @param insensitive "true" to compare text ignoring case and accents, or null
+   * @param limit the most rows to return, or null for all of them
+   * @param offset how many matching rows to skip, or null
+   * @param cursor where an earlier page ended, or null
+   * @param explain "true" to return what each node of the plan did instead of the rows, or null
+   */
+  public record SearchCSVRequest(
+      String query,
+      String insensitive,
+      String limit,
+      String offset,
+      String cursor,
+      String explain) {}
   ;
 }
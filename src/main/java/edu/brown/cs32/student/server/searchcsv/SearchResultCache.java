@@ -0,0 +1,99 @@
+package edu.brown.cs32.student.server.searchcsv;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * A bounded cache of serialized `/searchcsv` responses, keyed by the request and the version of the
+ * dataset it ran against, so a repeated query skips both the search and Moshi. The cache holds at
+ * most a number of responses and at most a number of bytes: every entry weighs its JSON size, and
+ * never less than its share of the entry limit. Seeing a new dataset version drops every entry.
+ */
+public class SearchResultCache {
+  /**
+   * @param version the dataset version the query ran against
+   * @param request the query and its options, as sent; the response echoes them, so equivalent but
+   *     differently written requests are cached apart
+   */
+  private record Key(long version, SearchCSVHandler.SearchCSVRequest request) {}
+
+  private final Cache<Key, byte[]> cache;
+  private final long maxBytes;
+  /** the dataset version the entries belong to */
+  private long version;
+
+  /**
+   * Constructor
+   *
+   * @param cacheSize how many responses to keep at most
+   * @param maxBytes how many bytes of responses to keep at most
+   */
+  public SearchResultCache(int cacheSize, long maxBytes) {
+    long minWeight = Math.max(1, maxBytes / cacheSize);
+    this.maxBytes = maxBytes;
+    this.cache =
+        CacheBuilder.newBuilder()
+            // How many bytes maximum in the cache? No entry weighs less than its share of the
+            // entry count, so this also bounds how many entries there are
+            .maximumWeight(maxBytes)
+            .weigher((Key k, byte[] json) -> (int) Math.max(minWeight, json.length))
+            // Keep statistical info around for profiling purposes
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Look up a response, dropping the whole cache first if the dataset was reloaded
+   *
+   * @param version the current dataset version
+   * @param request the query and its options
+   * @return the serialized response, or null on a miss
+   */
+  public byte[] get(long version, SearchCSVHandler.SearchCSVRequest request) {
+    sync(version);
+    return cache.getIfPresent(new Key(version, request));
+  }
+
+  /**
+   * Cache a response. Responses too big to share the cache with others are not kept.
+   *
+   * @param version the dataset version the query ran against
+   * @param request the query and its options
+   * @param json the serialized response
+   */
+  public synchronized void put(
+      long version, SearchCSVHandler.SearchCSVRequest request, byte[] json) {
+    if (json.length > maxEntryBytes()) return;
+    // a response computed against a table that was replaced since is never cached
+    if (sync(version)) cache.put(new Key(version, request), json);
+  }
+
+  /**
+   * @return the size of the biggest response `put` keeps
+   */
+  public int maxEntryBytes() {
+    return (int) Math.min(Integer.MAX_VALUE, maxBytes / 4);
+  }
+
+  /**
+   * Move the cache to a dataset version
+   *
+   * @return false if the version is older than the one the cache holds
+   */
+  private synchronized boolean sync(long version) {
+    if (version < this.version) return false;
+    if (version > this.version) {
+      cache.invalidateAll();
+      this.version = version;
+    }
+    return true;
+  }
+
+  /**
+   * @return hit and miss counts of the cache
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
@@ -1,12 +1,12 @@
 package edu.brown.cs32.student.server.viewcsv;
 
+import edu.brown.cs32.student.csv.table.Table;
 import edu.brown.cs32.student.server.GeneralResponse;
-import edu.brown.cs32.student.server.MissingArgException;
-import edu.brown.cs32.student.server.loadcsv.InValidHeaderArgException;
+import edu.brown.cs32.student.server.LoadedCSV;
+import edu.brown.cs32.student.server.Paging;
+import edu.brown.cs32.student.server.StreamedResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -19,21 +19,17 @@ import spark.Route;
  * complex, but this should serve as a reference.
  */
 public class ViewCSVHandler implements Route {
-  private final List<List<String>> csvData;
-  private final List<String> csvHeader;
+  private final LoadedCSV csv;
 
   private final String PREFIX = "data/";
-  HashMap<String, Object> result = new HashMap<>();
 
   /**
    * Constructor accepts some shared state
    *
-   * @param csvData the shared csvData (exclude Header if csv has head)
-   * @param csvHeader the shared csvHeader
+   * @param csv the shared loaded CSV table
    */
-  public ViewCSVHandler(List<List<String>> csvData, List<String> csvHeader) {
-    this.csvData = csvData;
-    this.csvHeader = csvHeader;
+  public ViewCSVHandler(LoadedCSV csv) {
+    this.csv = csv;
   }
 
   /**
@@ -46,37 +42,44 @@ public class ViewCSVHandler implements Route {
    */
   @Override
   public Object handle(Request request, Response response) throws Exception {
-
-    if (csvData.isEmpty()) {
+    // every error response gets its own map; rows are streamed, see StreamedResponse
+    HashMap<String, Object> result = new HashMap<>();
+    LoadedCSV.Snapshot loaded = csv.snapshot();
+    Table table = loaded.table();
+    if (loaded.isEmpty()) {
       result.put("result", "error_bad_request");
       result.put("detail", "No CSV data loaded");
       return new GeneralResponse(result).serialize();
     }
+    Paging paging;
     try {
-      result.put("result", "success");
-      if (csvHeader.isEmpty()) {
-        result.put("detail", csvData);
-      } else {
-        List<List<String>> csvwithheader = new ArrayList<>();
-        csvwithheader.add(csvHeader); // Add the header as the first element
-        csvwithheader.addAll(csvData);
-        result.put("detail", csvwithheader);
-      }
-      return new GeneralResponse(result).serialize();
-    } catch (MissingArgException e) {
+      paging =
+          Paging.parse(
+              request.queryParams("limit"),
+              request.queryParams("offset"),
+              request.queryParams("cursor"),
+              loaded);
+    } catch (IllegalArgumentException e) {
       result.put("result", "error_bad_request");
       result.put("detail", e.getMessage());
+      return new GeneralResponse(result).serialize();
+    }
+
+    // a page only reads its own rows; the header leads every page
+    int from = (int) Math.min(table.rowCount(), (long) paging.from() + paging.offset());
+    int to = (int) Math.min(table.rowCount(), (long) from + paging.limit());
+    try {
+      StreamedResponse out = new StreamedResponse(response, 0);
+      out.field("result", "success");
+      out.beginRows("detail");
+      if (table.hasHeader()) out.row(table.getHeader()); // Add the header as the first element
+      for (int i = from; i < to; i++) out.row(table, i);
+      out.endRows();
+      if (to < table.rowCount()) out.field("next cursor", Paging.cursor(loaded.version(), to));
+      out.close();
     } catch (IOException e) {
-      result.put("result", "error_datasource");
-      result.put("detail", "File access failed.");
-    } catch (InValidHeaderArgException e) {
-      result.put("result", "error_bad_request");
-      result.put("detail", e.getMessage());
-    } catch (Exception e) {
-      // open file failed, error
-      e.printStackTrace();
-      result.put("error_datasource", "File access failed.");
+      // the client went away; there is nobody left to tell
     }
-    return new GeneralResponse(result).serialize();
+    return "";
   }
 }
@@ -0,0 +1,166 @@
+package edu.brown.cs32.student.csv.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs32.student.csv.creator.CreatorFromRow;
+import edu.brown.cs32.student.csv.creator.CreatorFromView;
+import edu.brown.cs32.student.csv.creator.Star;
+import edu.brown.cs32.student.csv.creator.StarCreator;
+import edu.brown.cs32.student.csv.creator.StringListCreator;
+import edu.brown.cs32.student.csv.exception.FactoryFailureException;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CSVParserTest {
+
+  /**
+   * Test streaming parse hands every row to the consumer in file order
+   *
+   * @throws Exception
+   */
+  @Test
+  void testStreamParse() throws Exception {
+    CSVParser<Star> parser =
+        new CSVParser<>(true, new FileReader("data/ten-star.csv"), new StarCreator());
+    List<Star> stars = new ArrayList<>();
+    int rows = parser.parse(stars::add);
+    assertEquals(10, rows);
+    assertEquals(10, stars.size());
+    assertEquals(new Star(0, "Sol", 0, 0, 0), stars.get(0));
+    assertEquals(118721, stars.get(9).id());
+    assertEquals(List.of("StarID", "ProperName", "X", "Y", "Z"), parser.getHeader());
+  }
+
+  /**
+   * Test streaming parse agrees with the list-filling parse
+   *
+   * @throws Exception
+   */
+  @Test
+  void testStreamMatchesListParse() throws Exception {
+    List<List<String>> streamed = new ArrayList<>();
+    new CSVParser<>(true, new FileReader("data/test.csv"), new StringListCreator())
+        .parse(streamed::add);
+    List<List<String>> listed = new ArrayList<>();
+    List<String> header = new ArrayList<>();
+    new CSVParser<>(true, new FileReader("data/test.csv"), new StringListCreator())
+        .parse(listed, header);
+    assertEquals(listed, streamed);
+    assertEquals(List.of("John Doe", "20", "Male", "Computer Science", "3.5"), header);
+  }
+
+  /**
+   * Test streaming parse still checks the column count of each row
+   *
+   * @throws Exception
+   */
+  @Test
+  void testStreamWrongFormat() {
+    CSVParser<List<String>> parser =
+        new CSVParser<>(true, new StringReader("a,b\n1,2\n3\n"), new StringListCreator());
+    WrongFormatCSVException e =
+        assertThrows(WrongFormatCSVException.class, () -> parser.parse(row -> {}));
+    assertEquals("Wrong CSV data format! Line 3 has 1 columns, but should be 2", e.getMessage());
+  }
+
+  /**
+   * Test streaming parse reports creator failures
+   *
+   * @throws Exception
+   */
+  @Test
+  void testStreamFactoryFailure() {
+    CSVParser<Star> parser =
+        new CSVParser<>(true, new StringReader("a,b\n1,2\n"), new StarCreator());
+    FactoryFailureException e =
+        assertThrows(FactoryFailureException.class, () -> parser.parse(row -> {}));
+    assertEquals(List.of("1", "2"), e.getRow());
+  }
+
+  /**
+   * Test the tokenizer keeps empty cells, including trailing ones, and accepts CRLF line endings
+   *
+   * @throws Exception
+   */
+  @Test
+  void testEmptyCellsAndCRLF() throws Exception {
+    List<List<String>> rows = new ArrayList<>();
+    new CSVParser<>(
+            true, new StringReader("a,b,c\r\n1,,3\r\n4,5,\r\n,,\n"), new StringListCreator())
+        .parse(rows::add);
+    assertEquals(List.of(List.of("1", "", "3"), List.of("4", "5", ""), List.of("", "", "")), rows);
+  }
+
+  /**
+   * Test quoted cells with embedded commas, escaped quotes and line breaks
+   *
+   * @throws Exception
+   */
+  @Test
+  void testQuotedFields() throws Exception {
+    String csv =
+        "name,quote\r\n"
+            + "\"Lee, Grace\",\"She said \"\"hi\"\"\"\r\n"
+            + "\"multi\r\nline\",\"\"\r\n"
+            + "plain,\"last\"";
+    List<List<String>> rows = new ArrayList<>();
+    CSVParser<List<String>> parser =
+        new CSVParser<>(true, new StringReader(csv), new StringListCreator());
+    parser.parse(rows::add);
+    assertEquals(List.of("name", "quote"), parser.getHeader());
+    assertEquals(
+        List.of(
+            List.of("Lee, Grace", "She said \"hi\""),
+            List.of("multi\r\nline", ""),
+            List.of("plain", "last")),
+        rows);
+  }
+
+  /**
+   * Test a quoted cell that is never closed is reported as a format error
+   *
+   * @throws Exception
+   */
+  @Test
+  void testUnclosedQuote() {
+    CSVParser<List<String>> parser =
+        new CSVParser<>(true, new StringReader("a,b\n1,\"2\n3,4\n"), new StringListCreator());
+    WrongFormatCSVException e =
+        assertThrows(WrongFormatCSVException.class, () -> parser.parse(row -> {}));
+    assertEquals("Wrong CSV data format! Line 2 has an unclosed quoted field", e.getMessage());
+  }
+
+  /**
+   * Test a creator reading the row view gets the same objects as one reading the row as a List
+   *
+   * @throws Exception
+   */
+  @Test
+  void testRowView() throws Exception {
+    StarCreator stars = new StarCreator();
+    CreatorFromRow<Star> fromList = stars::create;
+    List<Star> viewed = new ArrayList<>();
+    new CSVParser<>(true, new FileReader("data/ten-star.csv"), stars).parse(viewed::add);
+    List<Star> listed = new ArrayList<>();
+    new CSVParser<>(true, new FileReader("data/ten-star.csv"), fromList).parse(listed::add);
+    assertEquals(listed, viewed);
+
+    CreatorFromView<String> cells =
+        row ->
+            row.getLong(0)
+                + "|"
+                + row.getDouble(1)
+                + "|"
+                + row.cell(2)
+                + "|"
+                + new String(row.chars(), row.start(3), row.end(3) - row.start(3));
+    List<String> rows = new ArrayList<>();
+    new CSVParser<>(true, new StringReader("a,b,c,d\n9876543210,1e3,\"x,y\",-0.25\n"), cells)
+        .parse(rows::add);
+    assertEquals(List.of("9876543210|1000.0|x,y|-0.25"), rows);
+  }
+}
@@ -0,0 +1,99 @@
+package edu.brown.cs32.student.csv.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MappedCSVReaderTest {
+  Path file;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    file = Files.createTempFile("mapped", ".csv");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    Files.deleteIfExists(file);
+  }
+
+  private static String readAll(Reader r, int bufSize) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    char[] buf = new char[bufSize];
+    int n;
+    while ((n = r.read(buf, 0, buf.length)) >= 0) sb.append(buf, 0, n);
+    return sb.toString();
+  }
+
+  /**
+   * Test multi-byte characters decode the same as the JDK decoder
+   *
+   * @throws Exception
+   */
+  @Test
+  void testDecodeUTF8() throws Exception {
+    String text = "id,name\n1,Sol\n2,Épsilon Indi\n3,天狼星\n4,🌟 star\n";
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+    try (Reader r = new MappedCSVReader(file)) {
+      assertEquals(text, readAll(r, 4096));
+    }
+    // a one-char buffer forces the surrogate pair to be split across reads
+    try (Reader r = new MappedCSVReader(file)) {
+      assertEquals(text, readAll(r, 1));
+    }
+  }
+
+  /**
+   * Test tiny windows, so multi-byte characters sit on window edges the way they would at the 1 GB
+   * boundaries of a large file
+   *
+   * @throws Exception
+   */
+  @Test
+  void testSmallWindows() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) sb.append(i).append(",天狼星🌟é\n");
+    String text = sb.toString();
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(file)) {
+      for (int window = 4; window < 12; window++) {
+        Reader r = new MappedCSVReader(channel, 0, channel.size(), window, false);
+        assertEquals(text, readAll(r, 7));
+      }
+    }
+  }
+
+  /**
+   * Test long ASCII runs mixed with multi-byte characters
+   *
+   * @throws Exception
+   */
+  @Test
+  void testLongASCIIRuns() throws Exception {
+    String text = "x".repeat(20000) + "é" + "y".repeat(9000) + "天\n";
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+    try (Reader r = new MappedCSVReader(file)) {
+      assertEquals(text, readAll(r, 65536));
+    }
+  }
+
+  /**
+   * Test malformed bytes decode to the replacement character
+   *
+   * @throws Exception
+   */
+  @Test
+  void testMalformed() throws Exception {
+    Files.write(file, new byte[] {'a', (byte) 0xFF, 'b', (byte) 0xE5, (byte) 0xA4, 'c'});
+    try (Reader r = new MappedCSVReader(file)) {
+      assertEquals("a�b�c", readAll(r, 16));
+    }
+  }
+}
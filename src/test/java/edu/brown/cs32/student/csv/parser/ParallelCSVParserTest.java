@@ -0,0 +1,134 @@
+package edu.brown.cs32.student.csv.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs32.student.csv.creator.StringListCreator;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
+import edu.brown.cs32.student.csv.table.Table;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelCSVParserTest {
+  ForkJoinPool pool;
+  Path file;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    pool = new ForkJoinPool(4);
+    file = Files.createTempFile("parallel", ".csv");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    pool.shutdown();
+    Files.deleteIfExists(file);
+  }
+
+  /** Build a file whose quoted cells hold commas and line breaks, so naive splits would break */
+  private String quotedCSV(int rows) {
+    StringBuilder sb = new StringBuilder("id,name,note\r\n");
+    for (int i = 0; i < rows; i++) {
+      sb.append(i).append(",\"Star, ").append(i).append("\",");
+      if (i % 7 == 0) sb.append("\"multi\nline \"\"").append(i).append("\"\"\"");
+      else sb.append("plain").append(i);
+      sb.append(i % 2 == 0 ? "\r\n" : "\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Test parallel parsing gives the same rows, in the same order, as sequential parsing
+   *
+   * @throws Exception
+   */
+  @Test
+  void testMatchesSequential() throws Exception {
+    String csv = quotedCSV(5000);
+    Files.writeString(file, csv);
+    List<List<String>> expected = new ArrayList<>();
+    List<String> expectedHeader = new ArrayList<>();
+    new CSVParser<>(true, new StringReader(csv), new StringListCreator())
+        .parse(expected, expectedHeader);
+
+    ParallelCSVParser<List<String>> parser =
+        new ParallelCSVParser<>(true, file, new StringListCreator(), pool);
+    try (FileChannel channel = FileChannel.open(file)) {
+      assertTrue(ParallelCSVParser.split(channel, 16, pool).length > 2);
+      // with many small segments, plenty of them start inside a quoted cell; every chunk must
+      // still hold whole records
+      long[] bounds = ParallelCSVParser.split(channel, 2000, pool);
+      List<List<String>> chunked = new ArrayList<>();
+      for (int i = 1; i < bounds.length; i++) {
+        assertTrue(bounds[i] > bounds[i - 1]);
+        String chunk =
+            csv.substring(0, (int) bounds[0]) + csv.substring((int) bounds[i - 1], (int) bounds[i]);
+        chunked.addAll(
+            new CSVParser<>(true, new StringReader(chunk), new StringListCreator())
+                .parse(new ArrayList<>(), new ArrayList<>()));
+      }
+      assertEquals(expected, chunked);
+    }
+    List<List<String>> rows = new ArrayList<>();
+    List<String> header = new ArrayList<>();
+    parser.parse(rows, header);
+    assertEquals(expectedHeader, header);
+    assertEquals(expected, rows);
+
+    Table table = new ParallelCSVParser<>(true, file, null, pool).parseTable();
+    assertEquals(expectedHeader, table.getHeader());
+    assertEquals(expected, table.rows());
+  }
+
+  /**
+   * Test a format error deep in the file reports the same line as sequential parsing
+   *
+   * @throws Exception
+   */
+  @Test
+  void testErrorLine() throws Exception {
+    String csv = quotedCSV(5000) + "bad row\n" + quotedCSV(100).substring(14);
+    Files.writeString(file, csv);
+    WrongFormatCSVException expected =
+        assertThrows(
+            WrongFormatCSVException.class,
+            () ->
+                new CSVParser<>(true, new StringReader(csv), new StringListCreator())
+                    .parse(row -> {}));
+    WrongFormatCSVException e =
+        assertThrows(
+            WrongFormatCSVException.class,
+            () ->
+                new ParallelCSVParser<>(true, file, new StringListCreator(), pool)
+                    .parse(new ArrayList<>(), new ArrayList<>()));
+    assertEquals(5002, e.getLine());
+    assertEquals(expected.getMessage(), e.getMessage());
+  }
+
+  /**
+   * Test files with only a header, or nothing at all
+   *
+   * @throws Exception
+   */
+  @Test
+  void testTinyFiles() throws Exception {
+    Files.writeString(file, "a,b");
+    List<List<String>> rows = new ArrayList<>();
+    List<String> header = new ArrayList<>();
+    new ParallelCSVParser<>(true, file, new StringListCreator(), pool).parse(rows, header);
+    assertEquals(List.of("a", "b"), header);
+    assertTrue(rows.isEmpty());
+
+    Files.writeString(file, "");
+    new ParallelCSVParser<>(true, file, new StringListCreator(), pool).parse(rows, header);
+    assertTrue(header.isEmpty());
+    assertTrue(rows.isEmpty());
+  }
+}
@@ -0,0 +1,785 @@
+package edu.brown.cs32.student.csv.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.brown.cs32.student.csv.parser.CSVParser;
+import edu.brown.cs32.student.csv.table.ColumnType;
+import edu.brown.cs32.student.csv.table.Folding;
+import edu.brown.cs32.student.csv.table.Postings;
+import edu.brown.cs32.student.csv.table.Table;
+import edu.brown.cs32.student.csv.table.TableIndex;
+import java.io.FileReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class SearchTest {
+
+  /**
+   * A table with a column of every type, with many repeated values
+   *
+   * @return the table
+   */
+  private static Table randomTable() {
+    return randomTable(5000);
+  }
+
+  private static Table randomTable(int rows) {
+    Random random = new Random(32);
+    String[] decimals = {"1.5", "1.50", "-1.5", "0", "0.0", "2.25", "-0.75"};
+    String[] names = {"Sol", "Vega", "", "Rigel", "sol"};
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      data.add(
+          List.of(
+              String.valueOf(random.nextInt(200) - 100),
+              String.valueOf((random.nextInt(50) - 25) * 10_000_000_000L),
+              decimals[random.nextInt(decimals.length)],
+              names[random.nextInt(names.length)]));
+    }
+    return Table.of(List.of("int", "long", "decimal", "name"), data);
+  }
+
+  /**
+   * Evaluate a query by testing every row against the whole tree, without any optimization
+   *
+   * @return the matching rows
+   */
+  private static List<List<String>> naive(Table table, String query) {
+    QueryTree tree = new QueryTree(List.of(query.split(",|\\(|\\)")));
+    List<List<String>> ret = new ArrayList<>();
+    for (int r = 0; r < table.rowCount(); r++) {
+      if (matches(table, tree.root, r)) ret.add(table.row(r));
+    }
+    return ret;
+  }
+
+  private static boolean matches(Table table, Node node, int row) {
+    if (node.isOp) {
+      boolean left = matches(table, node.children.get(0), row);
+      if (node.Op.equals("not")) return !left;
+      boolean right = matches(table, node.children.get(1), row);
+      return node.Op.equals("and") ? left && right : left || right;
+    }
+    String[] parts = node.queryName.split(";");
+    List<String> cells = table.row(row);
+    if (parts.length == 1) return cells.contains(parts[0]);
+    if (parts[0].equals("fuzzy")) {
+      int col = parts[4].equals("idx") ? Integer.parseInt(parts[3]) : table.columnIndex(parts[3]);
+      return levenshtein(cells.get(col), parts[1]) <= Integer.parseInt(parts[2]);
+    }
+    if (parts[0].equals("contains") || parts[0].equals("prefix")) {
+      int col = parts[3].equals("idx") ? Integer.parseInt(parts[2]) : table.columnIndex(parts[2]);
+      String cell = cells.get(col);
+      return parts[0].equals("prefix") ? cell.startsWith(parts[1]) : cell.contains(parts[1]);
+    }
+    if (parts.length > 3) {
+      // a range: compare the cell and the bounds as exact decimals
+      int col = table.columnIndex(parts[parts.length - 2]);
+      BigDecimal cell;
+      try {
+        cell = new BigDecimal(cells.get(col));
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      return switch (parts[0]) {
+        case "gt" -> cell.compareTo(new BigDecimal(parts[1])) > 0;
+        case "lt" -> cell.compareTo(new BigDecimal(parts[1])) < 0;
+        default -> cell.compareTo(new BigDecimal(parts[1])) >= 0
+            && cell.compareTo(new BigDecimal(parts[2])) <= 0;
+      };
+    }
+    int col = parts[2].equals("idx") ? Integer.parseInt(parts[1]) : table.columnIndex(parts[1]);
+    return col >= 0 && col < cells.size() && cells.get(col).equals(parts[0]);
+  }
+
+  /** Edit distance by the full table */
+  private static int levenshtein(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+    for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+    for (int i = 1; i <= a.length(); i++) {
+      for (int j = 1; j <= b.length(); j++) {
+        int substitute = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+        d[i][j] = Math.min(substitute, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  /**
+   * Test the indexed search finds exactly the rows a scan finds
+   *
+   * @throws Exception
+   */
+  @Test
+  void testIndexMatchesScan() throws Exception {
+    Table table = randomTable();
+    assertEquals(ColumnType.INT, table.column(0).type());
+    assertEquals(ColumnType.LONG, table.column(1).type());
+    assertEquals(ColumnType.DOUBLE, table.column(2).type());
+    assertEquals(ColumnType.STRING, table.column(3).type());
+    Search scan = new Search(table);
+    Search indexed = new Search(table, TableIndex.build(table));
+    String[] queries = {
+      "0",
+      "-7;int;name",
+      "-7;0;idx",
+      "1.5;decimal;name",
+      "1.50;2;idx",
+      "-1.5",
+      "0.0",
+      "Sol;3;idx",
+      ";name;name",
+      "-250000000000;long;name",
+      "7.0;int;name",
+      "007",
+      "nothing",
+      "and(Vega,not(1.5;decimal;name))",
+      "or(sol,and(-3;int;name,not(0)))"
+    };
+    for (String query : queries) {
+      List<List<String>> expected = scan.search(query);
+      assertEquals(expected, indexed.search(query), query);
+      assertEquals(expected, naive(table, query), query);
+    }
+    assertFalse(scan.search("1.50").isEmpty());
+    assertNotEquals(scan.search("1.5"), scan.search("1.50"));
+  }
+
+  /**
+   * Test the indexed search on a parsed file, with and without the column identifier
+   *
+   * @throws Exception
+   */
+  @Test
+  void testIndexedStars() throws Exception {
+    Table table = new CSVParser<>(true, new FileReader("data/ten-star.csv")).parseTable();
+    Search indexed = new Search(table, TableIndex.build(table));
+    List<List<String>> found = indexed.search("-0.01729;X;name");
+    assertEquals(1, found.size());
+    assertEquals("Barnard's Star", found.get(0).get(1));
+    assertEquals(new Search(table).search("0"), indexed.search("0"));
+  }
+
+  /**
+   * Test boolean queries combine the rows as bitsets, with results in row order
+   *
+   * @throws Exception
+   */
+  @Test
+  void testBitsetRows() throws Exception {
+    Table table = randomTable();
+    Search search = new Search(table, TableIndex.build(table));
+    BitSet sol = search.searchRows("Sol;name;name");
+    BitSet notSol = search.searchRows("not(Sol;name;name)");
+    assertEquals(table.rowCount(), sol.cardinality() + notSol.cardinality());
+    assertFalse(sol.intersects(notSol));
+    BitSet both = search.searchRows("and(Sol;name;name,1.5;decimal;name)");
+    for (int r = both.nextSetBit(0); r >= 0; r = both.nextSetBit(r + 1)) {
+      assertEquals("Sol", table.get(r, 3));
+      assertEquals("1.5", table.get(r, 2));
+    }
+    List<List<String>> rows = search.search("or(Sol;name;name,Vega;name;name)");
+    assertEquals(search.searchRows("or(Sol;name;name,Vega;name;name)").cardinality(), rows.size());
+  }
+
+  /**
+   * Test compiled plans are cached per query and dataset version, and give the same rows
+   *
+   * @throws Exception
+   */
+  @Test
+  void testPlanCache() throws Exception {
+    Table table = randomTable();
+    Search search = new Search(table, TableIndex.build(table));
+    QueryPlanCache plans = new QueryPlanCache(2);
+    String query = "and(Sol;name;name,not(1.5;2;idx))";
+    QueryPlan plan = plans.get(query, 1, search);
+    assertSame(plan, plans.get(query, 1, search));
+    assertNotSame(plan, plans.get(query, 2, search));
+    assertEquals(1, plans.stats().hitCount());
+    assertEquals(2, plans.stats().missCount());
+    assertEquals(search.search(query), search.search(plan));
+    assertEquals(new Search(table).search(plan), search.search(plan));
+    assertThrows(IllegalArgumentException.class, () -> plans.get("a;b", 1, search));
+    assertEquals("and(eq(3, Sol), not(eq(2, 1.5)))", plan.toString());
+    assertEquals(
+        "or(not(any(Sol)), and(not(eq(0, 1)), eq(2, 2.25)))",
+        search.compile("not(and(Sol,or(1;0;idx,not(2.25;decimal;name))))").toString());
+  }
+
+  /**
+   * Test range queries from the sorted index match a scan and a row-by-row comparison
+   *
+   * @throws Exception
+   */
+  @Test
+  void testRanges() throws Exception {
+    Table table = randomTable();
+    Search scan = new Search(table);
+    Search indexed = new Search(table, TableIndex.build(table));
+    String[] queries = {
+      "gt;50;int;name",
+      "lt;-99;int;name",
+      "between;-10.5;10.5;int;name",
+      "gt;99;int;name",
+      "between;5;5;int;name",
+      "between;5;4;int;name",
+      "gt;-9223372036854775809;long;name",
+      "lt;1e11;long;name",
+      "between;-120000000000;0;long;name",
+      "gt;1.5;decimal;name",
+      "lt;0;decimal;name",
+      "between;-0.75;1.50;decimal;name",
+      "gt;1e400;decimal;name",
+      "gt;2.2499999999999999999;decimal;name",
+      "lt;2.2500000000000000001;decimal;name",
+      "between;1.5000000000000000001;2.2499999999999999999;decimal;name",
+      "gt;0;name;name",
+      "and(between;0;60;int;name,not(lt;0;decimal;name))",
+      "or(gt;90;int;name,Vega)"
+    };
+    for (String query : queries) {
+      List<List<String>> expected = scan.search(query);
+      assertEquals(expected, indexed.search(query), query);
+      assertEquals(expected, naive(table, query), query);
+    }
+    assertFalse(scan.search("between;-0.75;1.50;decimal;name").isEmpty());
+    assertEquals("in(2, (1.5, inf))", scan.compile("gt;1.5;2;idx").toString());
+    assertEquals("in(0, [-1, 1])", scan.compile("between;-1;1;int;name").toString());
+    // bounds between the doubles compare as exact decimals, not as the doubles they round to
+    Table tenths =
+        Table.of(List.of("value"), List.of(List.of("0.1"), List.of("2.25"), List.of("0.5")));
+    for (Search search :
+        List.of(new Search(tenths), new Search(tenths, TableIndex.build(tenths)))) {
+      assertEquals(3, search.search("gt;0.0999999999999999999;value;name").size());
+      assertEquals(2, search.search("gt;0.1000000000000000001;value;name").size());
+      assertEquals(List.of(List.of("0.1")), search.search("lt;0.1000000000000000001;value;name"));
+      assertEquals(List.of(), search.search("lt;0.0999999999999999999;value;name"));
+      assertEquals(
+          List.of(List.of("0.1")),
+          search.search("between;0.0999999999999999999;0.1000000000000000001;value;name"));
+    }
+    assertThrows(IllegalArgumentException.class, () -> scan.search("gt;one;int;name"));
+    assertThrows(IllegalArgumentException.class, () -> scan.search("gt;1;2;int;name"));
+
+    // text columns compare the cells that read as numbers
+    ColumnType[] types = {null, null, ColumnType.STRING, null, null};
+    Table stars = new CSVParser<>(true, new FileReader("data/ten-star.csv")).parseTable(types);
+    Search starSearch = new Search(stars, TableIndex.build(stars));
+    List<List<String>> near = starSearch.search("between;-1;1;X;name");
+    assertEquals(new Search(stars).search("between;-1;1;X;name"), near);
+    assertEquals(naive(stars, "between;-1;1;X;name"), near);
+    assertTrue(starSearch.search("gt;0;ProperName;name").isEmpty());
+    assertEquals(
+        List.of("0", "70667", "71454", "71457", "87666"),
+        near.stream().map(r -> r.get(0)).toList());
+  }
+
+  /**
+   * Test substring and prefix queries agree with and without the n-gram index
+   *
+   * @throws Exception
+   */
+  @Test
+  void testTextMatches() throws Exception {
+    // many distinct values, so the n-gram index has real work to do
+    Random random = new Random(17);
+    String[] parts = {"Alpha", "Beta", "Gamma", "Centauri", "Ceti", "Eri", "a", "-", " "};
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      StringBuilder name = new StringBuilder();
+      for (int k = random.nextInt(4); k >= 0; k--) name.append(parts[random.nextInt(parts.length)]);
+      data.add(List.of(String.valueOf(i), name.toString()));
+    }
+    Table table = Table.of(List.of("id", "name"), data);
+    Search scan = new Search(table);
+    Search indexed = new Search(table, TableIndex.build(table));
+    Search text = new Search(table, TableIndex.build(table, true));
+    String[] queries = {
+      "contains;Centauri;name;name",
+      "contains;ta;name;name",
+      "contains;a;name;name",
+      "contains;aCe;1;idx",
+      "contains;Alpha Beta;name;name",
+      "contains;Zeta;name;name",
+      "contains;;name;name",
+      "prefix;Ce;name;name",
+      "prefix;Centauri-;name;name",
+      "prefix;Omega;name;name",
+      "prefix;12;id;name",
+      "contains;99;id;name",
+      "and(prefix;Gamma;name;name,not(contains;Eri;name;name))",
+      "or(prefix;Beta;name;name,contains;Ceti;name;name)"
+    };
+    for (String query : queries) {
+      List<List<String>> expected = naive(table, query);
+      assertEquals(expected, scan.search(query), query);
+      assertEquals(expected, indexed.search(query), query);
+      assertEquals(expected, text.search(query), query);
+    }
+    // 12, 120 to 129 and 1200 to 1299
+    assertEquals(111, scan.search("prefix;12;id;name").size());
+    assertEquals("prefix(1, Ce)", scan.compile("prefix;Ce;name;name").toString());
+  }
+
+  /**
+   * Test pages of results, read one after another, add up to the whole result, whether the plan is
+   * answered by the index or by scans of several windows
+   *
+   * @throws Exception
+   */
+  @Test
+  void testPages() throws Exception {
+    Table table = randomTable(200_003);
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      Search[] searches = {
+        new Search(table),
+        new Search(table, TableIndex.build(table)),
+        new Search(table, null, new ParallelScan(pool, 2))
+      };
+      String[] queries = {
+        "Sol;name;name",
+        "-1.5",
+        "and(not(Vega;3;idx),gt;50;int;name)",
+        "Proxima;name;name",
+        "lt;1;0;idx"
+      };
+      for (Search search : searches) {
+        for (String query : queries) {
+          QueryPlan plan = search.compile(query);
+          List<List<String>> all = search.search(plan);
+          for (int limit : new int[] {1, 7, 40_000}) {
+            List<List<String>> paged = new ArrayList<>();
+            int from = 0;
+            int pages = 0;
+            do {
+              Search.Page page = search.searchPage(plan, from, 0, limit);
+              assertTrue(page.rows().size() <= limit, query);
+              assertTrue(page.rows().size() == limit || page.next() < 0, query);
+              paged.addAll(page.rows());
+              from = page.next();
+            } while (from >= 0 && ++pages < 100);
+            if (from < 0) assertEquals(all, paged, query);
+            else assertEquals(all.subList(0, paged.size()), paged, query);
+          }
+          Search.Page skipped = search.searchPage(plan, 0, 3, 5);
+          assertEquals(
+              all.subList(Math.min(3, all.size()), Math.min(8, all.size())), skipped.rows());
+        }
+      }
+
+      // a window's rows of the index are a slice found by binary search
+      Postings sol = TableIndex.build(table).column(3).lookup("Sol");
+      Postings window = sol.within(1000, 70_000);
+      long inWindow = 0;
+      for (int i = 0; i < sol.size(); i++)
+        if (sol.get(i) >= 1000 && sol.get(i) < 70_000) inWindow++;
+      assertEquals(inWindow, window.size());
+      assertTrue(window.get(0) >= 1000 && window.get(window.size() - 1) < 70_000);
+      assertEquals(0, sol.within(70_000, 70_000).size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Test case- and accent-insensitive queries find the same rows with and without an index
+   *
+   * @throws Exception
+   */
+  @Test
+  void testCaseInsensitive() throws Exception {
+    String[] names = {
+      "Éclair", "eclair", "ECLAIR", "Straße", "STRASSE", "strasse", "Ångström", "x"
+    };
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      data.add(
+          List.of(String.valueOf(i % 7), names[i % names.length] + (i % 3 == 0 ? "" : " Bar")));
+    }
+    Table table = Table.of(List.of("n", "name"), data);
+    Search[] searches = {
+      new Search(table),
+      new Search(table, TableIndex.build(table)),
+      new Search(table, TableIndex.build(table, true))
+    };
+    for (Search search : searches) {
+      List<List<String>> eclairs = search.search(search.compile("eclair;name;name", true));
+      assertEquals(
+          count(data, c -> c.equals("Éclair") || c.equalsIgnoreCase("eclair")), eclairs.size());
+      assertEquals(
+          count(data, c -> c.toLowerCase().contains("strasse") || c.contains("Straße")),
+          search.search(search.compile("contains;STRAßE;name;name", true)).size());
+      assertEquals(
+          count(data, c -> c.startsWith("Ångström")),
+          search.search(search.compile("prefix;angstrom;1;idx", true)).size());
+      // a query without a column folds every column, and numbers fold to themselves
+      assertEquals(
+          data.stream()
+              .filter(r -> r.get(0).equals("3") || r.get(1).matches("(?i)eclair|Éclair"))
+              .count(),
+          search.search(search.compile("or(ÉCLAIR,3)", true)).size());
+      assertEquals(
+          data.stream().filter(r -> r.get(0).equals("3")).count(),
+          search.search(search.compile("3;n;name", true)).size());
+      // the default stays exact
+      assertEquals(count(data, c -> c.equals("eclair")), search.search("eclair;name;name").size());
+    }
+    assertEquals("ieq(1, strasse)", searches[0].compile("Straße;name;name", true).toString());
+  }
+
+  private static long count(List<List<String>> data, java.util.function.Predicate<String> name) {
+    return data.stream().filter(r -> name.test(r.get(1))).count();
+  }
+
+  /**
+   * Test fuzzy queries find the cells within their edit distance, from the BK-tree of a text index
+   * and from a test of every distinct value
+   *
+   * @throws Exception
+   */
+  @Test
+  void testFuzzy() throws Exception {
+    Random random = new Random(5);
+    String[] stars = {"Sol", "Rigel Kentaurus A", "Barnard's Star", "Proxima Centauri", "Vega"};
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      // the star names with up to two random typos, and a long name past 64 chars
+      StringBuilder name = new StringBuilder(stars[random.nextInt(stars.length)]);
+      for (int k = random.nextInt(3); k > 0; k--)
+        name.setCharAt(random.nextInt(name.length()), (char) ('a' + random.nextInt(26)));
+      if (i % 500 == 0) name.append(" of the ".repeat(10));
+      data.add(List.of(String.valueOf(i % 100), name.toString()));
+    }
+    Table table = Table.of(List.of("n", "name"), data);
+    Search[] searches = {
+      new Search(table),
+      new Search(table, TableIndex.build(table)),
+      new Search(table, TableIndex.build(table, true))
+    };
+    String[] queries = {
+      "fuzzy;Sol;0;name;name",
+      "fuzzy;Sol;1;name;name",
+      "fuzzy;Barnards Star;2;1;idx",
+      "fuzzy;Proxima Centauri;3;name;name",
+      "fuzzy;;3;name;name",
+      "fuzzy;17;1;n;name",
+      "and(fuzzy;Vega;1;name;name,not(Vega;name;name))"
+    };
+    for (Search search : searches) {
+      for (String query : queries) assertEquals(naive(table, query), search.search(query), query);
+      // typed in the wrong case, found only ignoring it
+      QueryPlan insensitive = search.compile("fuzzy;PROXIMA CENTAURY;1;name;name", true);
+      assertEquals(
+          data.stream()
+              .filter(r -> levenshtein(Folding.fold(r.get(1)), "proxima centaury") <= 1)
+              .toList(),
+          search.search(insensitive));
+      assertEquals(List.of(), search.search("fuzzy;PROXIMA CENTAURY;1;name;name"));
+    }
+    assertThrows(IllegalArgumentException.class, () -> searches[0].search("fuzzy;Sol;-1;1;idx"));
+    assertThrows(IllegalArgumentException.class, () -> searches[0].search("fuzzy;Sol;a;1;idx"));
+    assertEquals("fuzzy(1, Sol, 2)", searches[0].compile("fuzzy;Sol;2;name;name").toString());
+  }
+
+  /**
+   * Test a selective `and` never looks up a costly text match it does not need, and a text match
+   * that does run is looked up once for its estimates and its match
+   *
+   * @throws Exception
+   */
+  @Test
+  void testCostlySiblingNotLookedUp() throws Exception {
+    // distinct names, so a fuzzy lookup without a text index tests every one of them
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) data.add(List.of("name" + i, String.valueOf(i % 20)));
+    Table table = Table.of(List.of("name", "k"), data);
+    TableIndex index = TableIndex.build(table);
+    Search search = new Search(table, index);
+
+    String nested = "and(3;k;name,and(4;k;name,and(5;k;name,fuzzy;name17;1;name;name)))";
+    QueryPlan.And plan = (QueryPlan.And) search.compile(nested);
+    QueryPlan fuzzy = ((QueryPlan.And) ((QueryPlan.And) plan.right).right).right;
+    Execution ex = new Execution(table, index, null);
+    assertTrue(plan.execute(ex, null).isEmpty());
+    // the disjoint sides end the run before the fuzzy side is looked up, even for an estimate
+    Object notLookedUp = new Object();
+    assertSame(notLookedUp, ex.lookup(fuzzy, () -> notLookedUp));
+
+    QueryPlan.And needed =
+        (QueryPlan.And) search.compile("and(fuzzy;name17;1;name;name,17;k;name)");
+    ex = new Execution(table, index, null);
+    BitSet rows = needed.execute(ex, null);
+    assertEquals(naive(table, "and(fuzzy;name17;1;name;name,17;k;name)"), search.search(needed));
+    assertEquals(search.search(needed).size(), rows.cardinality());
+    // estimated by the `and` and matched with a single lookup
+    assertNotNull(ex.lookup(needed.left, () -> fail("looked up again")));
+  }
+
+  /**
+   * Test a scan split across a pool finds the same rows, in the same order, as a scan on one thread
+   *
+   * @throws Exception
+   */
+  @Test
+  void testParallelScan() throws Exception {
+    // enough rows for several partitions, and a row count that is not a multiple of 64
+    Table table = randomTable(300_001);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Search sequential = new Search(table);
+      Search parallel = new Search(table, null, new ParallelScan(pool, 3));
+      String[] queries = {
+        "Sol;name;name",
+        "-1.50;2;idx",
+        "-1.5",
+        "and(not(Vega;3;idx),or(20000000000;long;name,0))",
+        "Proxima;name;name"
+      };
+      for (String query : queries) {
+        assertEquals(sequential.searchRows(query), parallel.searchRows(query), query);
+        assertEquals(sequential.search(query), parallel.search(query), query);
+      }
+      assertThrows(IllegalArgumentException.class, () -> new ParallelScan(pool, 0));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** A number as the aggregates report it: a whole number as a long */
+  private static Object number(double value) {
+    return value == Math.rint(value) ? (Object) (long) value : (Object) value;
+  }
+
+  /**
+   * Aggregate rows of text one group at a time, without any optimization
+   *
+   * @return the aggregates of `testAggregate`, per value of the name column
+   */
+  private static List<Map<String, Object>> naiveAggregate(List<List<String>> rows) {
+    Map<String, List<List<String>>> groups = new LinkedHashMap<>();
+    for (List<String> row : rows)
+      groups.computeIfAbsent(row.get(3), k -> new ArrayList<>()).add(row);
+    List<Map<String, Object>> ret = new ArrayList<>();
+    for (Map.Entry<String, List<List<String>>> group : groups.entrySet()) {
+      long sum = 0;
+      double min = Double.POSITIVE_INFINITY;
+      long max = Long.MIN_VALUE;
+      Set<Double> distinct = new HashSet<>();
+      for (List<String> row : group.getValue()) {
+        sum += Integer.parseInt(row.get(0));
+        max = Math.max(max, Long.parseLong(row.get(1)));
+        double decimal = Double.parseDouble(row.get(2));
+        min = Math.min(min, decimal);
+        distinct.add(decimal + 0.0);
+      }
+      int n = group.getValue().size();
+      Map<String, Object> values = new LinkedHashMap<>();
+      values.put("name", group.getKey());
+      values.put("count", (long) n);
+      values.put("sum(int)", sum);
+      values.put("min(decimal)", number(min));
+      values.put("max(1)", max);
+      values.put("avg(int)", (double) sum / n);
+      values.put("distinct(decimal)", (long) distinct.size());
+      ret.add(values);
+    }
+    return ret;
+  }
+
+  /**
+   * Test aggregates computed in one pass, on one thread or split across a pool, match aggregating
+   * the matching rows group by group
+   *
+   * @throws Exception
+   */
+  @Test
+  void testAggregate() throws Exception {
+    Table table = randomTable(300_001);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Search sequential = new Search(table);
+      Search parallel = new Search(table, null, new ParallelScan(pool, 3));
+      String aggregates =
+          "count,sum;int;name,min;decimal;name,max;1;idx,avg;int;name,distinct;decimal;name";
+      String[] filters = {null, "not(Vega;name;name)", "between;-10;10;int;name"};
+      for (String filter : filters) {
+        List<List<String>> rows = filter == null ? table.rows() : naive(table, filter);
+        for (Search srh : List.of(sequential, parallel)) {
+          Aggregation aggregation = srh.compileAggregation(aggregates, "name;name");
+          QueryPlan plan = filter == null ? null : srh.compile(filter);
+          assertEquals(naiveAggregate(rows), srh.aggregate(aggregation, plan), filter);
+        }
+      }
+
+      // without groups, one set of aggregates, even of no rows
+      Search srh = new Search(table);
+      Aggregation aggregation =
+          srh.compileAggregation("count,sum;0;idx,avg;int;name,distinct;name;name", null);
+      Map<String, Object> none = new LinkedHashMap<>();
+      none.put("count", 0L);
+      none.put("sum(0)", 0L);
+      none.put("avg(int)", null);
+      none.put("distinct(name)", 0L);
+      assertEquals(List.of(none), srh.aggregate(aggregation, srh.compile("Proxima;name;name")));
+      List<Map<String, Object>> all = srh.aggregate(aggregation, null);
+      assertEquals((long) table.rowCount(), all.get(0).get("count"));
+      assertEquals(5L, all.get(0).get("distinct(name)"));
+
+      // numeric aggregates of a text column read the cells that are numbers
+      Table text = Table.of(List.of("a"), List.of(List.of("x"), List.of("2.5"), List.of("-1")));
+      Search textSearch = new Search(text);
+      Map<String, Object> values =
+          textSearch
+              .aggregate(textSearch.compileAggregation("sum;a;name,min;a;name", null), null)
+              .get(0);
+      assertEquals(1.5, values.get("sum(a)"));
+      assertEquals(-1L, values.get("min(a)"));
+
+      // long columns aggregate exactly past 2^53, and a sum past the range of a long carries on
+      Table longs =
+          Table.of(
+              List.of("v"),
+              List.of(List.of("9007199254740993"), List.of("9007199254740995"), List.of("1")));
+      Search longSearch = new Search(longs, null, new ParallelScan(pool, 3));
+      values =
+          longSearch
+              .aggregate(
+                  longSearch.compileAggregation("sum;v;name,min;v;name,max;v;name", null), null)
+              .get(0);
+      assertEquals(ColumnType.LONG, longs.column(0).type());
+      assertEquals(18014398509481989L, values.get("sum(v)"));
+      assertEquals(1L, values.get("min(v)"));
+      assertEquals(9007199254740995L, values.get("max(v)"));
+      String big = "999999999999999999";
+      List<List<String>> bigs = new ArrayList<>();
+      for (int i = 0; i < 10; i++) bigs.add(List.of(big));
+      bigs.add(List.of("-1"));
+      Table huge = Table.of(List.of("v"), bigs);
+      Search hugeSearch = new Search(huge);
+      values =
+          hugeSearch
+              .aggregate(hugeSearch.compileAggregation("sum;v;name,avg;v;name", null), null)
+              .get(0);
+      assertEquals(ColumnType.LONG, huge.column(0).type());
+      assertEquals(new BigDecimal("9999999999999999989"), values.get("sum(v)"));
+      assertEquals(9999999999999999989.0 / 11, (double) values.get("avg(v)"));
+
+      String[][] invalid = {
+        {"median;int;name", null},
+        {"sum;int", null},
+        {"count;int;name", null},
+        {"sum;nope;name", null},
+        {"sum;9;idx", null},
+        {"count", "name"}
+      };
+      for (String[] args : invalid)
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> srh.compileAggregation(args[0], args[1]),
+            args[0]);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Test an explained run records what every node that ran did, with and without an index
+   *
+   * @throws Exception
+   */
+  @Test
+  void testExplain() throws Exception {
+    Table table = randomTable();
+    for (TableIndex index : new TableIndex[] {null, TableIndex.build(table)}) {
+      Search search = new Search(table, index);
+      QueryPlan plan = search.compile("and(Sol;name;name,not(Vega;name;name))");
+      Profile.Step root = search.explain(plan).root();
+      assertEquals(plan.toString(), root.toMap().get("node"));
+      assertEquals(search.searchRows(plan).cardinality(), root.matched());
+      assertEquals(-1, root.candidates());
+      assertEquals(0, root.scanned());
+
+      // the more selective side runs first, on every row, and the other side on its matches
+      Profile.Step sol = root.children().get(0);
+      Profile.Step notVega = root.children().get(1);
+      assertEquals(search.searchRows("Sol;name;name").cardinality(), sol.matched());
+      assertEquals(index != null, sol.index());
+      assertEquals(index == null ? table.rowCount() : sol.matched(), sol.scanned());
+      assertEquals(sol.matched(), notVega.candidates());
+      Profile.Step vega = notVega.children().get(0);
+      assertEquals(sol.matched(), vega.candidates());
+      if (index == null) assertEquals(sol.matched(), vega.scanned());
+      assertEquals(0, vega.matched());
+      assertTrue(root.nanos() >= sol.nanos() + notVega.nanos());
+
+      // a side that cannot match leaves the other one out
+      root = search.explain(search.compile("and(Proxima;name;name,Sol;name;name)")).root();
+      assertEquals(1, root.children().size());
+      assertEquals(0, root.matched());
+    }
+  }
+
+  /**
+   * Test a batch of queries sharing their scans finds the same rows as each query on its own
+   *
+   * @throws Exception
+   */
+  @Test
+  void testBatch() throws Exception {
+    Table table = randomTable(300_001);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      String[] queries = {
+        "Sol;name;name",
+        "and(between;-10;10;int;name,not(Vega;name;name))",
+        "or(gt;0;decimal;name,-1.5)",
+        "Sol;3;idx",
+        "and(Sol;name;name,lt;0;long;name)",
+        "contains;ig;name;name",
+        "Proxima;name;name",
+        "Sol;name;name"
+      };
+      for (TableIndex index : new TableIndex[] {null, TableIndex.build(table, true)}) {
+        for (ParallelScan scanner : new ParallelScan[] {null, new ParallelScan(pool, 3)}) {
+          Search search = new Search(table, index, scanner);
+          List<QueryPlan> plans = new ArrayList<>();
+          for (String query : queries) plans.add(search.compile(query));
+          List<BitSet> rows = search.searchRows(plans);
+          assertEquals(queries.length, rows.size());
+          for (int i = 0; i < queries.length; i++)
+            assertEquals(search.searchRows(queries[i]), rows.get(i), queries[i]);
+          assertEquals(search.search(queries[1]), search.search(plans).get(1));
+        }
+      }
+      assertEquals(List.of(), new Search(table).search(List.of()));
+
+      // equal basic queries share a scan however they are written, and different ones never do
+      Search search = new Search(table);
+      List<QueryPlan> plans =
+          List.of(
+              search.compile("gt;1.5;decimal;name"),
+              search.compile("gt;1.50;decimal;name"),
+              search.compile("fuzzy;Sol;1;name;name"),
+              search.compile("fuzzy;Sol;2;name;name"));
+      Map<QueryPlan, BitSet> scanned = SharedScan.scan(new Execution(table, null, null), plans);
+      assertEquals(plans.get(0), plans.get(1));
+      assertSame(scanned.get(plans.get(0)), scanned.get(plans.get(1)));
+      assertNotEquals(plans.get(2), plans.get(3));
+      assertNotSame(scanned.get(plans.get(2)), scanned.get(plans.get(3)));
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
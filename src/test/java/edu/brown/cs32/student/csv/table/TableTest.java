@@ -0,0 +1,235 @@
+package edu.brown.cs32.student.csv.table;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.brown.cs32.student.csv.creator.StringListCreator;
+import edu.brown.cs32.student.csv.exception.WrongFormatCSVException;
+import edu.brown.cs32.student.csv.parser.CSVParser;
+import java.io.FileReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TableTest {
+
+  /**
+   * Test a parsed table holds the same rows and header as the list parse
+   *
+   * @throws Exception
+   */
+  @Test
+  void testParseTable() throws Exception {
+    List<List<String>> rows = new ArrayList<>();
+    List<String> header = new ArrayList<>();
+    new CSVParser<>(true, new FileReader("data/ten-star.csv"), new StringListCreator())
+        .parse(rows, header);
+    Table table = new CSVParser<>(true, new FileReader("data/ten-star.csv")).parseTable();
+    assertEquals(header, table.getHeader());
+    assertEquals(rows, table.rows());
+    assertEquals(10, table.rowCount());
+    assertEquals(5, table.columnCount());
+    assertEquals(2, table.columnIndex("X"));
+    assertEquals(-1, table.columnIndex("W"));
+    assertEquals("Barnard's Star", table.get(8, 1));
+  }
+
+  /**
+   * Test repeated values share one dictionary entry and equality search uses the codes
+   *
+   * @throws Exception
+   */
+  @Test
+  void testDictionaryEncoding() {
+    List<List<String>> data = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) data.add(List.of(String.valueOf(i), i % 3 == 0 ? "RI" : "MA"));
+    Table table = Table.of(List.of("id", "state"), data);
+    StringColumn state = (StringColumn) table.column(1);
+    assertEquals(2, state.cardinality());
+    assertSame(table.get(0, 1), table.get(3, 1));
+    assertEquals(-1, state.code("CT"));
+    List<Integer> found = new ArrayList<>();
+    state.findEqual("RI", found::add);
+    assertEquals(1000, found.size());
+    assertEquals(2997, found.get(found.size() - 1));
+  }
+
+  /**
+   * Test appending builders remaps codes into one dictionary
+   *
+   * @throws Exception
+   */
+  @Test
+  void testAppend() {
+    TableBuilder a = new TableBuilder(List.of(), 1);
+    a.add(0, "x");
+    a.endRow();
+    TableBuilder b = new TableBuilder(List.of(), 1);
+    b.add(0, "y");
+    b.endRow();
+    b.add(0, "x");
+    b.endRow();
+    a.append(b);
+    Table table = a.build();
+    assertEquals(List.of(List.of("x"), List.of("y"), List.of("x")), table.rows());
+    assertEquals(2, ((StringColumn) table.column(0)).cardinality());
+  }
+
+  /**
+   * Test column types are inferred, widened as cells need, and render back to the exact text
+   *
+   * @throws Exception
+   */
+  @Test
+  void testTypeInference() throws Exception {
+    String csv =
+        "id,big,x,name,padded,neg\n"
+            + "1,5,0,a,007,-1\n"
+            + "2,9876543210,282.43485,b,1,-0\n"
+            + "3,6,-1.50,3,2,5\n";
+    Table table = new CSVParser<>(true, new StringReader(csv)).parseTable();
+    assertEquals(ColumnType.INT, table.column(0).type());
+    assertEquals(ColumnType.LONG, table.column(1).type());
+    assertEquals(ColumnType.DOUBLE, table.column(2).type());
+    assertEquals(ColumnType.STRING, table.column(3).type());
+    // numbers that would not render back exactly keep the column as text
+    assertEquals(ColumnType.STRING, table.column(4).type());
+    assertEquals(ColumnType.STRING, table.column(5).type());
+    assertEquals(List.of("2", "9876543210", "282.43485", "b", "1", "-0"), table.row(1));
+    assertEquals(List.of("3", "6", "-1.50", "3", "2", "5"), table.row(2));
+    assertEquals(-1.5, ((NumericColumn) table.column(2)).getDouble(2));
+
+    List<Integer> found = new ArrayList<>();
+    table.column(2).findEqual("-1.50", found::add);
+    assertEquals(List.of(2), found);
+    found.clear();
+    table.column(2).findEqual("-1.5", found::add);
+    assertEquals(List.of(), found);
+    table.column(1).findEqual("9876543210", found::add);
+    assertEquals(List.of(1), found);
+  }
+
+  /**
+   * Test declared types are enforced, and builders of different types merge into a common one
+   *
+   * @throws Exception
+   */
+  @Test
+  void testDeclaredTypes() throws Exception {
+    String csv = "id,name\n1,a\n2,b\n";
+    ColumnType[] types = {ColumnType.STRING, null};
+    Table table = new CSVParser<>(true, new StringReader(csv)).parseTable(types);
+    assertEquals(ColumnType.STRING, table.column(0).type());
+    assertEquals(ColumnType.STRING, table.column(1).type());
+
+    ColumnType[] wrong = {ColumnType.INT, ColumnType.INT};
+    WrongFormatCSVException e =
+        assertThrows(
+            WrongFormatCSVException.class,
+            () -> new CSVParser<>(true, new StringReader(csv)).parseTable(wrong));
+    assertEquals(2, e.getLine());
+    assertThrows(
+        WrongFormatCSVException.class,
+        () -> new CSVParser<>(true, new StringReader(csv)).parseTable(new ColumnType[1]));
+
+    TableBuilder a = new TableBuilder(List.of(), 1);
+    a.add(0, "12345678901234567");
+    a.endRow();
+    TableBuilder b = new TableBuilder(List.of(), 1);
+    b.add(0, "0.5");
+    b.endRow();
+    a.append(b);
+    Table merged = a.build();
+    assertEquals(ColumnType.STRING, merged.column(0).type());
+    assertEquals(List.of(List.of("12345678901234567"), List.of("0.5")), merged.rows());
+  }
+
+  /**
+   * Test a snapshot reloads the same table, and is ignored once the source or options change
+   *
+   * @throws Exception
+   */
+  @Test
+  void testSnapshot(@TempDir Path dir) throws Exception {
+    Path source = dir.resolve("stars.csv");
+    Files.copy(Path.of("data/ten-star.csv"), source);
+    Table table = new CSVParser<>(true, new FileReader(source.toFile())).parseTable();
+    Path snapshot = dir.resolve("snapshots/stars.csv.snap");
+    TableSnapshot.write(table, snapshot, source, "header=true");
+
+    Table loaded = TableSnapshot.read(snapshot, source, "header=true");
+    assertNotNull(loaded);
+    assertEquals(table.getHeader(), loaded.getHeader());
+    assertEquals(table.rows(), loaded.rows());
+    for (int i = 0; i < table.columnCount(); i++)
+      assertEquals(table.column(i).type(), loaded.column(i).type());
+    List<Integer> found = new ArrayList<>();
+    loaded.column(1).findEqual("Rigel Kentaurus A", found::add);
+    assertEquals(1, found.size());
+
+    assertNull(TableSnapshot.read(snapshot, source, "header=false"));
+    Files.setLastModifiedTime(
+        source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000));
+    assertNull(TableSnapshot.read(snapshot, source, "header=true"));
+    assertNull(TableSnapshot.read(dir.resolve("missing.snap"), source, "header=true"));
+  }
+
+  /**
+   * Test the vector scan kernels set exactly the bits the plain loops set, on ranges that start and
+   * end inside a word and on values at the edges of their types
+   */
+  @Test
+  void testScanKernels() {
+    ScanKernel vector = ScanKernel.INSTANCE;
+    assumeTrue(vector.getClass() != ScalarScanKernel.class, "jdk.incubator.vector is not loaded");
+    ScanKernel scalar = new ScalarScanKernel();
+    java.util.Random random = new java.util.Random(20);
+    int n = 1000;
+    int[] ints = new int[n];
+    long[] longs = new long[n];
+    double[] doubles = new double[n];
+    int[] intEdges = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+    long[] longEdges = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+    for (int i = 0; i < n; i++) {
+      ints[i] = random.nextInt(10) == 0 ? intEdges[random.nextInt(5)] : random.nextInt(7) - 3;
+      longs[i] = random.nextInt(10) == 0 ? longEdges[random.nextInt(5)] : random.nextInt(7) - 3;
+      doubles[i] = (random.nextInt(13) - 6) / 4.0;
+    }
+    NumericRange[] ranges = {
+      NumericRange.between("-1", "1"),
+      NumericRange.greaterThan("0.5"),
+      NumericRange.lessThan("-0.25"),
+      NumericRange.between("3", "2")
+    };
+    int[][] bounds = {{0, n}, {1, n - 1}, {63, 65}, {64, 128}, {100, 900}, {5, 5}, {999, 1000}};
+    for (int[] b : bounds) {
+      for (int target : new int[] {0, 2, Integer.MIN_VALUE, Integer.MAX_VALUE, 42}) {
+        long[] expected = new long[(n + 63) / 64];
+        long[] actual = new long[expected.length];
+        scalar.equal(ints, target, b[0], b[1], expected);
+        vector.equal(ints, target, b[0], b[1], actual);
+        assertArrayEquals(expected, actual);
+        expected = new long[expected.length];
+        actual = new long[expected.length];
+        scalar.equal(longs, longEdges[target & 3], b[0], b[1], expected);
+        vector.equal(longs, longEdges[target & 3], b[0], b[1], actual);
+        assertArrayEquals(expected, actual);
+      }
+      for (NumericRange range : ranges) {
+        long[][] found = new long[6][(n + 63) / 64];
+        scalar.range(ints, -1, Integer.MAX_VALUE, b[0], b[1], found[0]);
+        vector.range(ints, -1, Integer.MAX_VALUE, b[0], b[1], found[1]);
+        scalar.range(longs, range.lowLong, range.highLong, b[0], b[1], found[2]);
+        vector.range(longs, range.lowLong, range.highLong, b[0], b[1], found[3]);
+        scalar.range(doubles, range, b[0], b[1], found[4]);
+        vector.range(doubles, range, b[0], b[1], found[5]);
+        for (int k = 0; k < 6; k += 2) assertArrayEquals(found[k], found[k + 1], range.toString());
+      }
+    }
+  }
+}
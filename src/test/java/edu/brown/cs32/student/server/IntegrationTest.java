@@ -3,23 +3,35 @@ package edu.brown.cs32.student.server;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import edu.brown.cs32.student.csv.search.ParallelScan;
+import edu.brown.cs32.student.csv.search.QueryPlanCache;
+import edu.brown.cs32.student.server.aggregatecsv.AggregateCSVHandler;
+import edu.brown.cs32.student.server.cachestats.CacheStatsHandler;
 import edu.brown.cs32.student.server.loadcsv.LoadCSVHandler;
+import edu.brown.cs32.student.server.searchcsv.BatchSearchCSVHandler;
 import edu.brown.cs32.student.server.searchcsv.SearchCSVHandler;
+import edu.brown.cs32.student.server.searchcsv.SearchResultCache;
 import edu.brown.cs32.student.server.viewcsv.ViewCSVHandler;
 import edu.brown.cs32.student.server.weather.WeatherHandler;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import okio.Buffer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,8 +40,7 @@ import org.testng.annotations.BeforeClass;
 import spark.Spark;
 
 public class IntegrationTest {
-  List<List<String>> csvData;
-  List<String> csvHeader;
+  LoadedCSV csv;
 
   @BeforeClass
   public static void setup_before_everything() {
@@ -39,11 +50,16 @@ public class IntegrationTest {
 
   @BeforeEach
   void setUp() {
-    csvData = new ArrayList<>();
-    csvHeader = new ArrayList<>();
-    Spark.get("/searchcsv", new SearchCSVHandler(csvData, csvHeader));
-    Spark.get("/loadcsv", new LoadCSVHandler(csvData, csvHeader));
-    Spark.get("/viewcsv", new ViewCSVHandler(csvData, csvHeader));
+    csv = new LoadedCSV();
+    QueryPlanCache plans = new QueryPlanCache(1024);
+    ParallelScan scanner = new ParallelScan(2);
+    SearchResultCache results = new SearchResultCache(256, 64L << 20);
+    Spark.get("/searchcsv", new SearchCSVHandler(csv, plans, scanner, results));
+    Spark.get("/aggregatecsv", new AggregateCSVHandler(csv, plans, scanner));
+    Spark.post("/batchsearchcsv", new BatchSearchCSVHandler(csv, plans, scanner));
+    Spark.get("/loadcsv", new LoadCSVHandler(csv));
+    Spark.get("/viewcsv", new ViewCSVHandler(csv));
+    Spark.get("/cachestats", new CacheStatsHandler(plans, results));
     Spark.get("/weather", new WeatherHandler());
     Spark.init();
     Spark.awaitInitialization(); // don't continue until the server is listening
@@ -51,11 +67,13 @@ public class IntegrationTest {
 
   @AfterEach
   void tearDown() {
-    csvData = new ArrayList<>();
-    csvHeader = new ArrayList<>();
+    csv = new LoadedCSV();
     Spark.unmap("/searchcsv");
+    Spark.unmap("/aggregatecsv");
+    Spark.unmap("/batchsearchcsv");
     Spark.unmap("/loadcsv");
     Spark.unmap("/viewcsv");
+    Spark.unmap("/cachestats");
     Spark.unmap("/weather");
     Spark.awaitStop(); // don't proceed until the server is stopped
   }
@@ -73,6 +91,31 @@ public class IntegrationTest {
     return clientConnection;
   }
 
+  /**
+   * @return a count of the search response cache, from `/cachestats`
+   */
+  private static long searchCacheStat(String count) throws Exception {
+    HttpURLConnection clientConnection = tryRequest("cachestats");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    Map<String, Object> stats = (Map<String, Object>) response.responseMap().get("search results");
+    return ((Number) stats.get(count)).longValue();
+  }
+
+  private static HttpURLConnection tryPost(String apiCall, String body) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("POST");
+    clientConnection.setDoOutput(true);
+    try (OutputStream out = clientConnection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    clientConnection.connect();
+    return clientConnection;
+  }
+
   /**
    * test get Weather Successfully with CurrentTime
    *
@@ -697,4 +740,338 @@ public class IntegrationTest {
     assertEquals(response.responseMap(), ExpecteResponseMap);
     clientConnection.disconnect();
   }
+
+  /* a filepath climbing out of data/ never puts its snapshot outside the snapshot directory */
+  @Test
+  void testSnapshotStaysInDirectory() throws Exception {
+    Path root = Files.createTempDirectory("snapshot-test");
+    Path snapshots = root.resolve("snapshots");
+    try {
+      Spark.unmap("/loadcsv");
+      Spark.get("/loadcsv", new LoadCSVHandler(csv, snapshots));
+      Spark.awaitInitialization();
+      // data/../../<project>/data/ten-star.csv is ten-star.csv, named from outside data/
+      String project = Path.of("").toAbsolutePath().getFileName().toString();
+      String[] files = {"ten-star.csv", "../../" + project + "/data/ten-star.csv"};
+      for (String file : files) {
+        HttpURLConnection clientConnection =
+            tryRequest("loadcsv?filepath=" + file + "&header=true");
+        assertEquals(200, clientConnection.getResponseCode());
+        GeneralResponse response =
+            new GeneralResponse()
+                .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+        assertEquals("success", response.responseMap().get("result"), file);
+        clientConnection.disconnect();
+      }
+      try (Stream<Path> written = Files.walk(root)) {
+        List<Path> outside =
+            written.filter(Files::isRegularFile).filter(f -> !f.startsWith(snapshots)).toList();
+        assertEquals(List.of(), outside);
+      }
+      assertTrue(Files.exists(snapshots.resolve("data/ten-star.csv.snap")));
+    } finally {
+      try (Stream<Path> written = Files.walk(root)) {
+        for (Path f : written.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+      }
+    }
+  }
+
+  /* repeated searches are answered from the cache until the next load */
+  @Test
+  void testSearchResultCache() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    List<Object> expected = new ArrayList<>();
+    expected.add(List.of(new String[] {"0", "Sol", "0", "0", "0"}));
+    for (int i = 0; i < 3; i++) {
+      clientConnection = tryRequest("searchcsv?query=Sol");
+      assertEquals(200, clientConnection.getResponseCode());
+      GeneralResponse response =
+          new GeneralResponse()
+              .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+      assertEquals(expected, response.responseMap().get("search result"));
+    }
+    assertEquals(1, searchCacheStat("misses"));
+    assertEquals(2, searchCacheStat("hits"));
+
+    // the same query after a load searches the new data
+    clientConnection = tryRequest("loadcsv?filepath=test.csv&header=false");
+    assertEquals(200, clientConnection.getResponseCode());
+    clientConnection = tryRequest("searchcsv?query=Sol");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals(List.of(), response.responseMap().get("search result"));
+    assertEquals(2, searchCacheStat("misses"));
+    clientConnection.disconnect();
+
+    // the compiled query was reused by the searches the response cache did not answer
+    clientConnection = tryRequest("cachestats");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    Map<String, Object> plans = (Map<String, Object>) response.responseMap().get("query plans");
+    assertEquals(2.0, plans.get("misses"));
+    clientConnection.disconnect();
+  }
+
+  /* insensitive=true ignores case and accents, and is cached apart from the exact query */
+  @Test
+  void testInsensitiveSearch() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    List<Object> sol = new ArrayList<>();
+    sol.add(List.of(new String[] {"0", "Sol", "0", "0", "0"}));
+    String[][] cases = {{"false", "[]"}, {"true", sol.toString()}};
+    for (String[] c : cases) {
+      clientConnection = tryRequest("searchcsv?query=S%C3%93L;ProperName;name&insensitive=" + c[0]);
+      assertEquals(200, clientConnection.getResponseCode());
+      GeneralResponse response =
+          new GeneralResponse()
+              .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+      assertEquals(c[1], String.valueOf(response.responseMap().get("search result")));
+    }
+
+    clientConnection = tryRequest("searchcsv?query=Sol&insensitive=yes");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("error_bad_request", response.responseMap().get("result"));
+    assertEquals(
+        "insensitive should be either true or false, but get yes",
+        response.responseMap().get("detail"));
+    clientConnection.disconnect();
+  }
+
+  /* limit, offset and cursor page through view and search results of one load */
+  @Test
+  void testPaging() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    clientConnection = tryRequest("viewcsv?limit=4&offset=1");
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    List<Object> rows = (List<Object>) response.responseMap().get("detail");
+    assertEquals(5, rows.size());
+    assertEquals(List.of("StarID", "ProperName", "X", "Y", "Z"), rows.get(0));
+    assertEquals("1", ((List<Object>) rows.get(1)).get(0));
+    assertEquals("3759", ((List<Object>) rows.get(4)).get(0));
+
+    // the rest of the view follows the cursor, and the last page has none
+    String cursor = (String) response.responseMap().get("next cursor");
+    clientConnection = tryRequest("viewcsv?limit=10&cursor=" + cursor);
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    rows = (List<Object>) response.responseMap().get("detail");
+    assertEquals(6, rows.size());
+    assertEquals("70667", ((List<Object>) rows.get(1)).get(0));
+    assertNull(response.responseMap().get("next cursor"));
+
+    // ten-star has three rows without a proper name
+    List<Object> ids = new ArrayList<>();
+    cursor = null;
+    do {
+      clientConnection =
+          tryRequest(
+              "searchcsv?query=;ProperName;name&limit=2"
+                  + (cursor == null ? "" : "&cursor=" + cursor));
+      response =
+          new GeneralResponse()
+              .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+      for (Object row : (List<Object>) response.responseMap().get("search result"))
+        ids.add(((List<Object>) row).get(0));
+      cursor = (String) response.responseMap().get("next cursor");
+    } while (cursor != null);
+    assertEquals(List.of("1", "2", "3", "118721"), ids);
+
+    // a cursor does not outlive its load
+    clientConnection = tryRequest("viewcsv?limit=1");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    cursor = (String) response.responseMap().get("next cursor");
+    tryRequest("loadcsv?filepath=ten-star.csv&header=true").getResponseCode();
+    String[] requests = {"viewcsv?cursor=" + cursor, "searchcsv?query=Sol&cursor=" + cursor};
+    for (String request : requests) {
+      clientConnection = tryRequest(request);
+      response =
+          new GeneralResponse()
+              .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+      assertEquals("error_bad_request", response.responseMap().get("result"));
+      assertEquals(
+          "cursor belongs to an earlier load of the data, start again without it",
+          response.responseMap().get("detail"));
+    }
+    clientConnection = tryRequest("viewcsv?limit=0");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals(
+        "limit should be an integer of at least 1, but get 0",
+        response.responseMap().get("detail"));
+    clientConnection.disconnect();
+  }
+
+  /* aggregatecsv counts, sums and groups the rows matching an optional query */
+  @Test
+  void testAggregate() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    clientConnection =
+        tryRequest("aggregatecsv?aggregates=count,distinct;ProperName;name,max;0;idx");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    Map<String, Object> values =
+        (Map<String, Object>) response.responseMap().get("aggregate result");
+    assertEquals(10.0, values.get("count"));
+    assertEquals(7.0, values.get("distinct(ProperName)"));
+    assertEquals(118721.0, values.get("max(0)"));
+
+    // the stars of the query, per proper name; the three without one form one group
+    clientConnection =
+        tryRequest(
+            "aggregatecsv?aggregates=count,sum;X;name&groupby=ProperName;name&query=gt;200;X;name");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    List<Object> groups = (List<Object>) response.responseMap().get("aggregate result");
+    assertEquals(1, groups.size());
+    Map<String, Object> group = (Map<String, Object>) groups.get(0);
+    assertEquals("", group.get("ProperName"));
+    assertEquals(2.0, group.get("count"));
+    assertEquals(559.54843, (double) group.get("sum(X)"), 1e-9);
+
+    clientConnection = tryRequest("aggregatecsv?aggregates=median;X;name");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("error_bad_request", response.responseMap().get("result"));
+    assertEquals(
+        "Unknown aggregate median, should be count, distinct, sum, min, max or avg",
+        response.responseMap().get("detail"));
+    clientConnection.disconnect();
+  }
+
+  /* explain=true returns what each node of the plan did instead of the rows */
+  @Test
+  void testExplainSearch() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    clientConnection =
+        tryRequest("searchcsv?query=or(Sol;ProperName;name,gt;200;X;name)&explain=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("or(eq(1, Sol), in(2, (200, inf)))", response.responseMap().get("plan"));
+    assertNull(response.responseMap().get("search result"));
+    Map<String, Object> root = (Map<String, Object>) response.responseMap().get("explain");
+    assertEquals(3.0, root.get("rows matched"));
+    List<Object> children = (List<Object>) root.get("children");
+    Map<String, Object> sol = (Map<String, Object>) children.get(0);
+    assertEquals("eq(1, Sol)", sol.get("node"));
+    assertEquals(1.0, sol.get("rows matched"));
+    assertEquals(true, sol.get("index used"));
+
+    clientConnection = tryRequest("searchcsv?query=Sol&explain=yes");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("error_bad_request", response.responseMap().get("result"));
+    assertEquals(
+        "explain should be either true or false, but get yes",
+        response.responseMap().get("detail"));
+    clientConnection.disconnect();
+  }
+
+  /* batchsearchcsv answers every query of its body, in order, each with its own result or error */
+  @Test
+  void testBatchSearch() throws Exception {
+    HttpURLConnection clientConnection = tryRequest("loadcsv?filepath=ten-star.csv&header=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    clientConnection =
+        tryPost(
+            "batchsearchcsv",
+            "{\"queries\": [\"sol;ProperName;name\", \"gt;200;X;name\", \"Sol;9;idx;x\"],"
+                + " \"insensitive\": true}");
+    assertEquals(200, clientConnection.getResponseCode());
+    GeneralResponse response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    List<Object> results = (List<Object>) response.responseMap().get("search results");
+    assertEquals(3, results.size());
+    Map<String, Object> sol = (Map<String, Object>) results.get(0);
+    assertEquals("sol;ProperName;name", sol.get("query"));
+    assertEquals(List.of(List.of("0", "Sol", "0", "0", "0")), sol.get("search result"));
+    List<Object> far = (List<Object>) ((Map<String, Object>) results.get(1)).get("search result");
+    assertEquals(2, far.size());
+    Map<String, Object> wrong = (Map<String, Object>) results.get(2);
+    assertEquals("error_bad_request", wrong.get("result"));
+    assertNull(wrong.get("search result"));
+
+    // a query cut short fails on its own, and the queries around it still run
+    clientConnection =
+        tryPost(
+            "batchsearchcsv",
+            "{\"queries\": [\"and(Sol)\", \"Sol;ProperName;name\", \"or()\", \"not()\","
+                + " \"not(Sol)\"]}");
+    assertEquals(200, clientConnection.getResponseCode());
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    results = (List<Object>) response.responseMap().get("search results");
+    assertEquals(5, results.size());
+    for (int i : new int[] {0, 2, 3}) {
+      Map<String, Object> truncated = (Map<String, Object>) results.get(i);
+      assertEquals("error_bad_request", truncated.get("result"));
+      assertNull(truncated.get("search result"));
+    }
+    assertEquals(
+        List.of(List.of("0", "Sol", "0", "0", "0")),
+        ((Map<String, Object>) results.get(1)).get("search result"));
+    assertEquals(
+        9, ((List<Object>) ((Map<String, Object>) results.get(4)).get("search result")).size());
+
+    clientConnection = tryPost("batchsearchcsv", "{\"queries\": \"Sol\"}");
+    response =
+        new GeneralResponse().deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("error_bad_request", response.responseMap().get("result"));
+    clientConnection.disconnect();
+  }
+
+  /* a view or search too big to buffer is streamed with chunked transfer encoding */
+  @Test
+  void testStreamedResponses() throws Exception {
+    Path file = Path.of("data/streamed-test.csv");
+    StringBuilder csvText = new StringBuilder("id,name\n");
+    for (int i = 0; i < 20000; i++) csvText.append(i).append(",star ").append(i % 7).append('\n');
+    Files.writeString(file, csvText);
+    try {
+      HttpURLConnection clientConnection =
+          tryRequest("loadcsv?filepath=streamed-test.csv&header=true");
+      assertEquals(200, clientConnection.getResponseCode());
+      clientConnection = tryRequest("viewcsv");
+      assertEquals(200, clientConnection.getResponseCode());
+      assertEquals("chunked", clientConnection.getHeaderField("Transfer-Encoding"));
+      GeneralResponse response =
+          new GeneralResponse()
+              .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+      assertEquals("success", response.responseMap().get("result"));
+      List<Object> rows = (List<Object>) response.responseMap().get("detail");
+      assertEquals(20001, rows.size());
+      assertEquals(List.of("id", "name"), rows.get(0));
+      assertEquals(List.of("19999", "star 0"), rows.get(20000));
+
+      // the search streams too, and the copy kept for the cache answers the same request again
+      for (int i = 0; i < 2; i++) {
+        clientConnection = tryRequest("searchcsv?query=star%203;name;name");
+        if (i == 0) assertEquals("chunked", clientConnection.getHeaderField("Transfer-Encoding"));
+        response =
+            new GeneralResponse()
+                .deserialize(new Buffer().readFrom(clientConnection.getInputStream()));
+        rows = (List<Object>) response.responseMap().get("search result");
+        assertEquals(2857, rows.size());
+        assertEquals(List.of("3", "star 3"), rows.get(0));
+        assertEquals(
+            "star 3;name;name",
+            ((Map<String, Object>) response.responseMap().get("request")).get("query"));
+      }
+      assertEquals(1, searchCacheStat("hits"));
+      clientConnection.disconnect();
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
 }